@@ -102,6 +102,11 @@ static bool is_input_stream(AAudioStream* stream) {
     return false;
 }
 
+// 录音流标识：Java 侧按它区分各自的播放游标
+static int64_t stream_id(AAudioStream* stream) {
+    return static_cast<int64_t>(reinterpret_cast<intptr_t>(stream));
+}
+
 static StreamInfo get_stream_info(AAudioStream* stream) {
     std::lock_guard<std::mutex> lock(g_stream_mutex);
     auto it = g_stream_map.find(stream);
@@ -156,7 +161,7 @@ static aaudio_result_t hooked_AAudioStream_read(
         int i16Size = result * info.channelCount * 2;
         int8_t* tempBuf = new int8_t[i16Size];
 
-        int rc = fill_fake_pcm(tempBuf, i16Size, info.sampleRate, info.channelCount);
+        int rc = fill_fake_pcm(stream_id(stream), tempBuf, i16Size, info.sampleRate, info.channelCount);
         if (rc >= 0) {
             // Convert int16 → float
             int16_t* src = reinterpret_cast<int16_t*>(tempBuf);
@@ -169,7 +174,7 @@ static aaudio_result_t hooked_AAudioStream_read(
         delete[] tempBuf;
     } else {
         // PCM_I16 — direct replacement
-        fill_fake_pcm(buffer, sizeBytes, info.sampleRate, info.channelCount);
+        fill_fake_pcm(stream_id(stream), buffer, sizeBytes, info.sampleRate, info.channelCount);
     }
 
     return result;
@@ -208,7 +213,7 @@ static int32_t wrapped_data_callback(
         int i16Size = framesProcessed * info.channelCount * 2;
         int8_t* tempBuf = new int8_t[i16Size];
 
-        int rc = fill_fake_pcm(tempBuf, i16Size, info.sampleRate, info.channelCount);
+        int rc = fill_fake_pcm(stream_id(stream), tempBuf, i16Size, info.sampleRate, info.channelCount);
         if (rc >= 0) {
             int16_t* src = reinterpret_cast<int16_t*>(tempBuf);
             float* dst = static_cast<float*>(audioData);
@@ -220,7 +225,7 @@ static int32_t wrapped_data_callback(
         delete[] tempBuf;
     } else {
         int sizeBytes = framesProcessed * info.channelCount * 2;
-        fill_fake_pcm(audioData, sizeBytes, info.sampleRate, info.channelCount);
+        fill_fake_pcm(stream_id(stream), audioData, sizeBytes, info.sampleRate, info.channelCount);
     }
 
     return result;
@@ -291,9 +296,17 @@ static aaudio_result_t hooked_openStream(
 // ============================================================
 
 static aaudio_result_t hooked_AAudioStream_close(AAudioStream* stream) {
+    bool wasInput = false;
     {
         std::lock_guard<std::mutex> lock(g_stream_mutex);
-        g_stream_map.erase(stream);
+        auto it = g_stream_map.find(stream);
+        if (it != g_stream_map.end()) {
+            wasInput = it->second.isInput;
+            g_stream_map.erase(it);
+        }
+    }
+    if (wasInput) {
+        release_fake_pcm_stream(stream_id(stream));
     }
     {
         std::lock_guard<std::mutex> lock(g_builder_mutex);
@@ -38,6 +38,8 @@ static std::unordered_map<SLAndroidSimpleBufferQueueItf, bool> g_is_recorder_bq;
 struct RecorderObjectInfo {
     SLuint32 sampleRate;   // milliHz
     SLuint32 channels;
+    // 该录音器的 buffer queue，Destroy 时一并清理
+    SLAndroidSimpleBufferQueueItf bq;
 };
 static std::unordered_map<SLObjectItf, RecorderObjectInfo> g_recorder_objects;
 
@@ -117,7 +119,9 @@ static void wrapped_bq_callback(SLAndroidSimpleBufferQueueItf bq, void* context)
         int channels = info.channels;
         if (channels <= 0) channels = 1;
 
-        fill_fake_pcm(info.lastBuffer, info.lastBufferSize, sampleRate, channels);
+        // 以 buffer queue 指针作为录音器标识，各录音器在 Java 侧有独立的播放游标
+        fill_fake_pcm(static_cast<int64_t>(reinterpret_cast<intptr_t>(bq)),
+                      info.lastBuffer, info.lastBufferSize, sampleRate, channels);
     }
 
     // Call original callback — it will see fake data and typically re-enqueue next buffer
@@ -294,6 +298,7 @@ static SLresult hooked_GetInterface(
                 *static_cast<SLAndroidSimpleBufferQueueItf*>(pInterface);
             if (bq) {
                 g_is_recorder_bq[bq] = true;
+                it->second.bq = bq;
                 // 将音频参数传递给 recorder map
                 auto& info = g_recorder_map[bq];
                 info.sampleRate = it->second.sampleRate;
@@ -312,9 +317,21 @@ static SLresult hooked_GetInterface(
 // ============================================================
 
 static void hooked_Destroy(SLObjectItf self) {
+    SLAndroidSimpleBufferQueueItf bq = nullptr;
     {
         std::lock_guard<std::mutex> lock(g_sl_mutex);
-        g_recorder_objects.erase(self);
+        auto it = g_recorder_objects.find(self);
+        if (it != g_recorder_objects.end()) {
+            bq = it->second.bq;
+            g_recorder_objects.erase(it);
+        }
+        if (bq) {
+            g_recorder_map.erase(bq);
+            g_is_recorder_bq.erase(bq);
+        }
+    }
+    if (bq) {
+        release_fake_pcm_stream(static_cast<int64_t>(reinterpret_cast<intptr_t>(bq)));
     }
     orig_Destroy(self);
 }
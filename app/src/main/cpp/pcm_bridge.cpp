@@ -9,6 +9,7 @@
 
 static jclass g_hook_class = nullptr;
 static jmethodID g_fill_method = nullptr;
+static jmethodID g_release_method = nullptr;
 static volatile bool g_bridge_ready = false;
 
 // Per-thread JNIEnv cache
@@ -82,18 +83,25 @@ void pcm_bridge_init(JNIEnv* env, jclass hookClass) {
 
     g_hook_class = static_cast<jclass>(env->NewGlobalRef(hookClass));
 
-    g_fill_method = env->GetStaticMethodID(g_hook_class, "fillNativeBuffer", "([BIII)I");
+    g_fill_method = env->GetStaticMethodID(g_hook_class, "fillNativeBuffer", "(J[BIII)I");
     if (!g_fill_method) {
         LOGE("pcm_bridge_init: GetStaticMethodID fillNativeBuffer failed");
         env->ExceptionClear();
         return;
     }
 
+    g_release_method = env->GetStaticMethodID(g_hook_class, "releaseNativeStream", "(J)V");
+    if (!g_release_method) {
+        // Not fatal: cursors of closed streams are just not reclaimed
+        LOGE("pcm_bridge_init: GetStaticMethodID releaseNativeStream failed");
+        env->ExceptionClear();
+    }
+
     g_bridge_ready = true;
     LOGI("pcm_bridge_init: bridge ready");
 }
 
-int fill_fake_pcm(void* buffer, int sizeBytes, int sampleRate, int channels) {
+int fill_fake_pcm(int64_t streamId, void* buffer, int sizeBytes, int sampleRate, int channels) {
     if (!g_bridge_ready || sizeBytes <= 0) {
         // Bridge not ready — fill silence as fallback
         if (buffer && sizeBytes > 0) {
@@ -117,7 +125,8 @@ int fill_fake_pcm(void* buffer, int sizeBytes, int sampleRate, int channels) {
     }
 
     jint result = env->CallStaticIntMethod(g_hook_class, g_fill_method,
-                                           jbuf, sizeBytes, sampleRate, channels);
+                                           static_cast<jlong>(streamId), jbuf, sizeBytes,
+                                           sampleRate, channels);
 
     if (env->ExceptionCheck()) {
         env->ExceptionDescribe();
@@ -139,3 +148,15 @@ int fill_fake_pcm(void* buffer, int sizeBytes, int sampleRate, int channels) {
 
     return sizeBytes;
 }
+
+void release_fake_pcm_stream(int64_t streamId) {
+    if (!g_bridge_ready || !g_release_method) return;
+
+    JNIEnv* env = get_env();
+    if (!env) return;
+
+    env->CallStaticVoidMethod(g_hook_class, g_release_method, static_cast<jlong>(streamId));
+    if (env->ExceptionCheck()) {
+        env->ExceptionClear();
+    }
+}
@@ -12,8 +12,13 @@ extern "C" {
 void pcm_bridge_init(JNIEnv* env, jclass hookClass);
 
 // Fill buffer with fake PCM data from Java side.
+// streamId identifies the recorder (stream / buffer queue pointer); each one keeps
+// its own playback cursor on the Java side.
 // Returns number of bytes filled, or -1 if hook is not enabled (passthrough).
-int fill_fake_pcm(void* buffer, int sizeBytes, int sampleRate, int channels);
+int fill_fake_pcm(int64_t streamId, void* buffer, int sizeBytes, int sampleRate, int channels);
+
+// Drop the Java-side playback cursor of a closed recorder.
+void release_fake_pcm_stream(int64_t streamId);
 
 // Get the JavaVM pointer (defined in native_audio_hook.cpp)
 JavaVM* get_java_vm();
@@ -1,36 +1,175 @@
 package com.example.camswap;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 按帧尺寸分类的无锁 byte[] 池。
+ * <p>
+ * 每个尺寸（即一种帧几何）一个无锁队列，解码线程与预览回调线程之间不再争用同一把锁。
+ * 全局字节预算超出时优先淘汰最久未使用的尺寸类，预览 / 拍照分辨率来回切换时
+ * 旧尺寸的缓冲区会被回收而不是无限增长。
+ * <p>
+ * count 是每类的名额（release 先占名额再入队），pooledBytes 只在真正入队 / 出队时增减，
+ * 因此与队列中的缓冲区严格对应。
+ */
 public class BytePool {
-    private static final Map<Integer, Deque<byte[]>> pools = new HashMap<>();
-    private static final int MAX_POOL_SIZE = 5;
+    private static final int MAX_PER_CLASS = 5;
+    private static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
 
-    public static synchronized byte[] acquire(int size) {
-        Deque<byte[]> pool = pools.get(size);
-        if (pool != null && !pool.isEmpty()) {
-            return pool.poll();
+    private static final Map<Integer, SizeClass> classes = new ConcurrentHashMap<>();
+    private static final AtomicLong pooledBytes = new AtomicLong();
+    private static volatile long budgetBytes = DEFAULT_BUDGET_BYTES;
+
+    private static final Metrics.Counter hits = Metrics.counter("bytepool.hits");
+    private static final Metrics.Counter misses = Metrics.counter("bytepool.misses");
+    private static final Metrics.Counter evictions = Metrics.counter("bytepool.evictions");
+
+    static {
+        Metrics.gauge("bytepool.pooled_bytes", pooledBytes::get);
+    }
+
+    private static final class SizeClass {
+        final int size;
+        final ConcurrentLinkedDeque<byte[]> buffers = new ConcurrentLinkedDeque<>();
+        final AtomicInteger count = new AtomicInteger();
+        volatile long lastUsedNanos = System.nanoTime();
+
+        SizeClass(int size) {
+            this.size = size;
+        }
+
+        byte[] poll() {
+            byte[] buffer = buffers.pollFirst();
+            if (buffer != null) {
+                count.decrementAndGet();
+                pooledBytes.addAndGet(-size);
+            }
+            return buffer;
+        }
+    }
+
+    public static byte[] acquire(int size) {
+        SizeClass sizeClass = classes.get(size);
+        if (sizeClass != null) {
+            sizeClass.lastUsedNanos = System.nanoTime();
+            byte[] buffer = sizeClass.poll();
+            if (buffer != null) {
+                hits.inc();
+                return buffer;
+            }
         }
+        misses.inc();
         return new byte[size];
     }
 
-    public static synchronized void release(byte[] buffer) {
-        if (buffer == null) return;
+    public static void release(byte[] buffer) {
+        if (buffer == null || buffer.length <= 1) return;
         int size = buffer.length;
-        Deque<byte[]> pool = pools.get(size);
-        if (pool == null) {
-            pool = new ArrayDeque<>();
-            pools.put(size, pool);
+        SizeClass sizeClass = classes.get(size);
+        if (sizeClass == null) {
+            SizeClass created = new SizeClass(size);
+            sizeClass = classes.putIfAbsent(size, created);
+            if (sizeClass == null) {
+                sizeClass = created;
+            }
+        }
+        sizeClass.lastUsedNanos = System.nanoTime();
+
+        if (sizeClass.count.incrementAndGet() > MAX_PER_CLASS) {
+            sizeClass.count.decrementAndGet();
+            return;
         }
-        if (pool.size() < MAX_POOL_SIZE) {
-            pool.offer(buffer);
+        long over = pooledBytes.get() + size - budgetBytes;
+        if (over > 0 && !evictLru(sizeClass, over)) {
+            // 淘汰其他尺寸后仍超出预算：直接丢弃交给 GC
+            sizeClass.count.decrementAndGet();
+            evictions.inc();
+            return;
+        }
+        sizeClass.buffers.offerFirst(buffer);
+        pooledBytes.addAndGet(size);
+        if (classes.get(size) != sizeClass) {
+            // 入队前该尺寸类已被淘汰移出，回收刚放进去的缓冲区，保持字节计数准确
+            while (sizeClass.poll() != null) {
+                evictions.inc();
+            }
+        }
+    }
+
+    /**
+     * 按最久未使用的顺序把其他尺寸类各扫一遍，释放缓冲区直到腾出 needBytes。
+     * 只扫一遍：并发 release 占了名额但尚未入队的类 poll 不到东西，直接跳过。
+     *
+     * @return 是否已腾出足够空间
+     */
+    private static boolean evictLru(SizeClass keep, long needBytes) {
+        List<SizeClass> remaining = new ArrayList<>(classes.values());
+        remaining.remove(keep);
+        while (needBytes > 0 && !remaining.isEmpty()) {
+            // lastUsedNanos 会被并发更新，逐个挑最旧的而不是排序
+            SizeClass victim = remaining.get(0);
+            for (SizeClass c : remaining) {
+                if (c.lastUsedNanos < victim.lastUsedNanos) {
+                    victim = c;
+                }
+            }
+            remaining.remove(victim);
+            byte[] dropped;
+            while (needBytes > 0 && (dropped = victim.poll()) != null) {
+                needBytes -= dropped.length;
+                evictions.inc();
+            }
+            if (victim.count.get() <= 0) {
+                classes.remove(victim.size, victim);
+            }
         }
+        return needBytes <= 0;
     }
-    
-    public static synchronized void clear() {
-        pools.clear();
+
+    /**
+     * 设置池可保留的总字节数，超出部分立即按 LRU 淘汰。
+     */
+    public static void setBudgetBytes(long bytes) {
+        budgetBytes = bytes;
+        long over = pooledBytes.get() - bytes;
+        if (over > 0) {
+            evictLru(null, over);
+        }
+    }
+
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    public static long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public static long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    public static String stats() {
+        return "BytePool{classes=" + classes.size() + ", pooled=" + pooledBytes.get() / 1024 + "KB, hits="
+                + hits.get() + ", misses=" + misses.get() + ", evictions=" + evictions.get() + "}";
+    }
+
+    public static void clear() {
+        for (SizeClass c : classes.values()) {
+            while (c.poll() != null) {
+                // drain
+            }
+        }
+        classes.clear();
     }
 }
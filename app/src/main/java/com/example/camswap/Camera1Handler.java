@@ -321,16 +321,6 @@ public class Camera1Handler implements ICameraHandler {
                     }
                 });
 
-        XposedHelpers.findAndHookMethod("android.hardware.Camera", lpparam.classLoader, "addCallbackBuffer",
-                byte[].class, new XC_MethodHook() {
-                    @Override
-                    protected void beforeHookedMethod(MethodHookParam param) {
-                        if (param.args[0] != null) {
-                            param.args[0] = new byte[((byte[]) param.args[0]).length];
-                        }
-                    }
-                });
-
         XposedHelpers.findAndHookMethod("android.hardware.Camera", lpparam.classLoader, "setPreviewCallback",
                 Camera.PreviewCallback.class, new XC_MethodHook() {
                     @Override
@@ -371,6 +361,7 @@ public class Camera1Handler implements ICameraHandler {
                         HookMain.origin_preview_camera = null;
                         HookMain.start_preview_camera = null;
                         HookMain.camera_onPreviewFrame = null;
+                        HookMain.frameRing.clear();
                     }
                 });
 
@@ -410,21 +401,31 @@ public class Camera1Handler implements ICameraHandler {
                         if (HookMain.mhight <= 0)
                             HookMain.mhight = 480;
 
-                        byte[] nv21 = HookMain.data_buffer;
                         byte[] jpegData = null;
 
                         // 方式1：从 onPreviewFrame 帧回调解码的 NV21 数据生成 JPEG
-                        if (nv21 != null && nv21.length > 1) {
+                        FrameRing.Slot latestFrame = HookMain.frameRing.acquireLatest();
+                        if (latestFrame != null) {
                             try {
+                                int frameWidth = latestFrame.width();
+                                int frameHeight = latestFrame.height();
+                                byte[] nv21 = latestFrame.data();
+                                if (nv21 == null) {
+                                    // 直接内存槽位，拍照时才拷贝到数组
+                                    nv21 = new byte[latestFrame.length()];
+                                    latestFrame.copyTo(nv21);
+                                }
                                 android.graphics.YuvImage yuvImage = new android.graphics.YuvImage(nv21,
-                                        android.graphics.ImageFormat.NV21, HookMain.mwidth, HookMain.mhight, null);
+                                        android.graphics.ImageFormat.NV21, frameWidth, frameHeight, null);
                                 java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
-                                yuvImage.compressToJpeg(
-                                        new android.graphics.Rect(0, 0, HookMain.mwidth, HookMain.mhight), 90, out);
+                                yuvImage.compressToJpeg(new android.graphics.Rect(0, 0, frameWidth, frameHeight), 90,
+                                        out);
                                 jpegData = out.toByteArray();
                                 LogUtil.log("【CS】Camera1 Photo Fake: 从 NV21 帧回调数据生成 JPEG");
                             } catch (Exception e) {
                                 LogUtil.log("【CS】Camera1 截帧 JPEG 转换失败: " + e);
+                            } finally {
+                                HookMain.frameRing.release(latestFrame);
                             }
                         }
 
@@ -512,6 +513,19 @@ public class Camera1Handler implements ICameraHandler {
         }
     }
 
+    /**
+     * 把帧环中的最新帧拷贝到回调缓冲区；还没有帧时填充黑色 NV21，避免真实画面泄漏。
+     * dst 即应用通过 addCallbackBuffer 提供的缓冲区，原样交给相机后直接写入，应用的缓冲区复用不被破坏。
+     */
+    private static void copyLatestFrame(byte[] dst) {
+        if (dst == null || HookMain.frameRing.copyLatest(dst) >= 0) {
+            return;
+        }
+        int ySize = Math.max(0, Math.min(dst.length, HookMain.mwidth * HookMain.mhight));
+        java.util.Arrays.fill(dst, 0, ySize, (byte) 16);
+        java.util.Arrays.fill(dst, ySize, dst.length, (byte) 128);
+    }
+
     /**
      * Hook onPreviewFrame to replace camera frame data with decoded video frames.
      * Moved from HookMain.process_callback().
@@ -542,17 +556,8 @@ public class Camera1Handler implements ICameraHandler {
                     protected void beforeHookedMethod(MethodHookParam paramd) throws Throwable {
                         Camera localcam = (android.hardware.Camera) paramd.args[1];
                         if (localcam.equals(HookMain.camera_onPreviewFrame)) {
-                            for (int _w = 0; _w < 100 && HookMain.data_buffer == null; _w++) {
-                                try {
-                                    Thread.sleep(10);
-                                } catch (InterruptedException ignored) {
-                                    break;
-                                }
-                            }
-                            if (HookMain.data_buffer == null)
-                                return;
-                            System.arraycopy(HookMain.data_buffer, 0, paramd.args[0], 0,
-                                    Math.min(HookMain.data_buffer.length, ((byte[]) paramd.args[0]).length));
+                            // 预览线程上不等待：取最新一帧，解码器尚未出帧时输出黑帧
+                            copyLatestFrame((byte[]) paramd.args[0]);
                         } else {
                             HookMain.camera_onPreviewFrame = (android.hardware.Camera) paramd.args[1];
                             HookMain.mwidth = HookMain.camera_onPreviewFrame.getParameters().getPreviewSize().width;
@@ -576,23 +581,15 @@ public class Camera1Handler implements ICameraHandler {
                                 HookMain.hw_decode_obj = new VideoToFrames();
                             }
                             HookMain.hw_decode_obj.setTargetSize(HookMain.mwidth, HookMain.mhight);
+                            HookMain.hw_decode_obj.setMaxFrameRate(frame_Rate);
                             HookMain.hw_decode_obj.setSaveFrames("", OutputImageFormat.NV21);
                             try {
                                 HookMain.hw_decode_obj.reset(VideoManager.getCurrentVideoPath());
                             } catch (Throwable t) {
                                 LogUtil.log("【CS】" + t);
                             }
-                            for (int _w = 0; _w < 100 && HookMain.data_buffer == null; _w++) {
-                                try {
-                                    Thread.sleep(10);
-                                } catch (InterruptedException ignored) {
-                                    break;
-                                }
-                            }
-                            if (HookMain.data_buffer == null)
-                                return;
-                            System.arraycopy(HookMain.data_buffer, 0, paramd.args[0], 0,
-                                    Math.min(HookMain.data_buffer.length, ((byte[]) paramd.args[0]).length));
+                            // 预览线程上不等待：取最新一帧，解码器尚未出帧时输出黑帧
+                            copyLatestFrame((byte[]) paramd.args[0]);
                         }
                     }
                 });
@@ -0,0 +1,134 @@
+package com.example.camswap;
+
+import android.media.MediaCodec;
+
+import com.example.camswap.utils.LogUtil;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 mime + 分辨率复用的解码器池。
+ * <p>
+ * MediaCodec 实例化在部分设备上需要 50–200 ms，切换视频时会出现明显卡顿。
+ * 解码结束后把解码器 stop() 回到未配置状态放入池中，下一个同格式的视频直接 configure/start。
+ * 空闲实例占用硬件解码资源，池容量很小且超时自动释放。
+ */
+public final class CodecPool {
+    private static final int MAX_IDLE = 2;
+    private static final long IDLE_TIMEOUT_MS = 15_000;
+
+    private static final class Entry {
+        final String key;
+        final MediaCodec codec;
+        final long releasedAt;
+
+        Entry(String key, MediaCodec codec) {
+            this.key = key;
+            this.codec = codec;
+            this.releasedAt = System.currentTimeMillis();
+        }
+    }
+
+    private static final ArrayDeque<Entry> idle = new ArrayDeque<>();
+    private static ScheduledExecutorService reaper;
+
+    private CodecPool() {
+    }
+
+    private static String key(String mime, int width, int height) {
+        return mime + "/" + width + "x" + height;
+    }
+
+    /**
+     * 取出同格式的空闲解码器（未配置状态），没有时新建。
+     */
+    public static MediaCodec acquire(String mime, int width, int height) throws IOException {
+        String key = key(mime, width, height);
+        synchronized (idle) {
+            Iterator<Entry> it = idle.iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.key.equals(key)) {
+                    it.remove();
+                    LogUtil.log("【CS】【CodecPool】复用解码器 " + key);
+                    return entry.codec;
+                }
+            }
+        }
+        long start = System.currentTimeMillis();
+        MediaCodec codec = MediaCodec.createDecoderByType(mime);
+        LogUtil.log("【CS】【CodecPool】新建解码器 " + key + " 耗时 " + (System.currentTimeMillis() - start) + "ms");
+        return codec;
+    }
+
+    /**
+     * 停止解码器并放回池中；状态异常的实例直接释放。
+     */
+    public static void release(String mime, int width, int height, MediaCodec codec) {
+        if (codec == null) {
+            return;
+        }
+        try {
+            codec.stop();
+        } catch (IllegalStateException e) {
+            codec.release();
+            return;
+        }
+        Entry evicted = null;
+        synchronized (idle) {
+            idle.addLast(new Entry(key(mime, width, height), codec));
+            if (idle.size() > MAX_IDLE) {
+                evicted = idle.pollFirst();
+            }
+            if (reaper == null) {
+                reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "CS-CodecReaper");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            reaper.schedule(CodecPool::reap, IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+        if (evicted != null) {
+            evicted.codec.release();
+        }
+    }
+
+    private static void reap() {
+        long now = System.currentTimeMillis();
+        ArrayDeque<Entry> expired = new ArrayDeque<>();
+        synchronized (idle) {
+            Iterator<Entry> it = idle.iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (now - entry.releasedAt >= IDLE_TIMEOUT_MS) {
+                    it.remove();
+                    expired.add(entry);
+                }
+            }
+        }
+        for (Entry entry : expired) {
+            entry.codec.release();
+            LogUtil.log("【CS】【CodecPool】释放空闲解码器 " + entry.key);
+        }
+    }
+
+    /**
+     * 释放池中所有解码器。
+     */
+    public static void clear() {
+        ArrayDeque<Entry> all;
+        synchronized (idle) {
+            all = new ArrayDeque<>(idle);
+            idle.clear();
+        }
+        for (Entry entry : all) {
+            entry.codec.release();
+        }
+    }
+}
@@ -45,6 +45,14 @@ public class ConfigManager {
     public static final String MIC_MODE_VIDEO_SYNC = "video_sync";
     public static final String KEY_VIDEO_ROTATION_OFFSET = "video_rotation_offset"; // 视频旋转偏移角度
     public static final String KEY_ENABLE_PHOTO_FAKE = "enable_photo_fake"; // 启用拍照替换 (动态防御)
+    public static final String KEY_CONVERT_THREADS = "convert_threads"; // 帧转换并行线程数 (0/1 = 单线程, -1 = 自动)
+    public static final String KEY_GPU_CONVERT = "gpu_convert"; // 内存解码模式优先使用 GPU 旋转/缩放 (无 GL 时自动回退 CPU)
+    public static final String KEY_FRAME_CACHE_MB = "frame_cache_mb"; // 循环短视频已解码帧缓存预算 (MB, 默认 0 = 关闭)
+    public static final String KEY_FRAME_HOLD_EARLY = "frame_hold_early"; // 早到的帧等待到展示时间再交付
+    public static final String KEY_FRAME_DROP_LATE_MS = "frame_drop_late_ms"; // 迟到超过该值的帧直接丢弃 (ms, -1 = 不丢)
+    public static final String KEY_METRICS_INTERVAL_S = "metrics_interval_s"; // 帧管线指标导出间隔 (秒, 0 = 关闭)
+    public static final String KEY_DIRECT_FRAMES = "direct_frames"; // 帧环使用直接内存 ByteBuffer，解码/缓存/Surface 间不经过 Java 堆
+    public static final String KEY_AUDIO_STREAM_THRESHOLD_S = "audio_stream_threshold_s"; // 超过该时长的音频边解码边播放，不整段解码进内存 (秒)
 
     // Broadcast Actions
     public static final String ACTION_UPDATE_CONFIG = "com.example.camswap.ACTION_UPDATE_CONFIG";
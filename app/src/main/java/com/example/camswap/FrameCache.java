@@ -0,0 +1,332 @@
+package com.example.camswap;
+
+import com.example.camswap.utils.LogUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * 循环短视频的已解码帧缓存。
+ * <p>
+ * 第一遍解码时把目标几何（旋转 + 缩放后）的 NV21 帧顺序写入缓存目录下的文件，
+ * 完成后以只读 mmap 打开，之后每一轮循环直接从映射内存拷贝，不再解码。
+ * 文件以 “源标识 + 旋转 + 输出尺寸” 为键，跨会话复用；目录总大小受字节预算约束，超出时淘汰最旧的文件。
+ * <p>
+ * 文件格式：头部（魔数、版本、宽、高、帧长、帧数、键）后接若干 [pts(8 字节) + NV21 帧]。
+ */
+public final class FrameCache {
+    private static final int MAGIC = 0x43534643; // "CSFC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4096;
+    private static final String SUFFIX = ".frames";
+
+    private final String key;
+    private final int width;
+    private final int height;
+    private final int frameLength;
+    private final int frameCount;
+    private final long[] pts;
+    private final MappedByteBuffer map;
+
+    private FrameCache(String key, int width, int height, int frameLength, int frameCount, long[] pts,
+            MappedByteBuffer map) {
+        this.key = key;
+        this.width = width;
+        this.height = height;
+        this.frameLength = frameLength;
+        this.frameCount = frameCount;
+        this.pts = pts;
+        this.map = map;
+    }
+
+    /**
+     * 缓存键：源标识 + 旋转角度 + 输出尺寸。
+     */
+    public static String key(String source, int rotation, int width, int height) {
+        return source + "|" + rotation + "|" + width + "x" + height;
+    }
+
+    private static File fileFor(File dir, String key) {
+        return new File(dir, Integer.toHexString(key.hashCode()) + "_" + key.length() + SUFFIX);
+    }
+
+    /**
+     * 打开已完成的缓存，不存在或损坏时返回 null。
+     */
+    public static FrameCache open(File dir, String key) {
+        File file = fileFor(dir, key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                return null;
+            }
+            int width = raf.readInt();
+            int height = raf.readInt();
+            int frameLength = raf.readInt();
+            int frameCount = raf.readInt();
+            if (!key.equals(raf.readUTF())) {
+                return null; // 文件名哈希碰撞
+            }
+            long recordSize = 8L + frameLength;
+            if (frameCount <= 0 || raf.length() < HEADER_SIZE + recordSize * frameCount) {
+                return null;
+            }
+            MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_SIZE + recordSize * frameCount);
+            long[] pts = new long[frameCount];
+            for (int i = 0; i < frameCount; i++) {
+                pts[i] = map.getLong((int) (HEADER_SIZE + recordSize * i));
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return new FrameCache(key, width, height, frameLength, frameCount, pts, map);
+        } catch (IOException e) {
+            LogUtil.log("【CS】【FrameCache】打开缓存失败: " + e);
+            return null;
+        }
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int frameLength() {
+        return frameLength;
+    }
+
+    public int frameCount() {
+        return frameCount;
+    }
+
+    public long ptsUs(int index) {
+        return pts[index];
+    }
+
+    /**
+     * 把第 index 帧拷贝到 dst（长度至少 frameLength）。只应在单个线程上调用。
+     */
+    public void read(int index, byte[] dst) {
+        map.position((int) (HEADER_SIZE + (8L + frameLength) * index + 8));
+        map.get(dst, 0, frameLength);
+    }
+
+    /**
+     * 把第 index 帧从映射内存拷贝到直接缓冲区（从 position 0 起，不改变 dst 的 position），原生内存到原生内存。
+     */
+    public void read(int index, ByteBuffer dst) {
+        int start = (int) (HEADER_SIZE + (8L + frameLength) * index + 8);
+        ByteBuffer src = map.duplicate();
+        src.limit(start + frameLength);
+        src.position(start);
+        ByteBuffer out = dst.duplicate();
+        out.clear();
+        out.put(src);
+    }
+
+    /**
+     * 删除最久未使用的缓存文件，直到目录总大小加上 reserve 不超过 budget。
+     */
+    static void trim(File dir, long budget, long reserve) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX) || name.endsWith(SUFFIX + ".tmp"));
+        if (files == null) {
+            return;
+        }
+        long total = reserve;
+        for (File f : files) {
+            total += f.length();
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            if (total <= budget) {
+                break;
+            }
+            total -= f.length();
+            if (f.delete()) {
+                LogUtil.log("【CS】【FrameCache】淘汰缓存 " + f.getName());
+            }
+        }
+    }
+
+    /**
+     * 第一遍解码时顺序写入帧。超出预算或几何变化时放弃，文件被删除。
+     */
+    public static final class Writer {
+        private final File dir;
+        private final String key;
+        private final File tmpFile;
+        private final long budget;
+        private final int width;
+        private final int height;
+        private final int frameLength;
+        private RandomAccessFile raf;
+        private final byte[] ptsBytes = new byte[8];
+        private final ByteBuffer ptsBuffer = ByteBuffer.wrap(ptsBytes);
+        private int frameCount;
+        private long bytes = HEADER_SIZE;
+
+        private Writer(File dir, String key, long budget, int width, int height) throws IOException {
+            this.dir = dir;
+            this.key = key;
+            this.budget = budget;
+            this.width = width;
+            this.height = height;
+            this.frameLength = width * height * 3 / 2;
+            this.tmpFile = new File(dir, fileFor(dir, key).getName() + ".tmp");
+            this.raf = new RandomAccessFile(tmpFile, "rw");
+            raf.setLength(0);
+            raf.seek(HEADER_SIZE);
+        }
+
+        /**
+         * 开始录制。预计大小超出预算或目录不可写时返回 null。
+         *
+         * @param estimatedFrames 预计帧数（时长 x 帧率），用于提前判断是否放得下
+         */
+        public static Writer create(File dir, String key, long budget, int width, int height, long estimatedFrames) {
+            long estimated = estimatedFrames * (8L + width * height * 3 / 2);
+            if (budget <= 0 || estimated > budget || estimated > Integer.MAX_VALUE) {
+                return null;
+            }
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return null;
+            }
+            trim(dir, budget, estimated);
+            try {
+                return new Writer(dir, key, budget, width, height);
+            } catch (IOException e) {
+                LogUtil.log("【CS】【FrameCache】创建缓存失败: " + e);
+                return null;
+            }
+        }
+
+        public String key() {
+            return key;
+        }
+
+        /**
+         * 追加一帧。
+         *
+         * @return false 表示已放弃录制（调用方应丢弃该 Writer）
+         */
+        public boolean append(byte[] nv21, int width, int height, long ptsUs) {
+            if (!accept(width, height)) {
+                return false;
+            }
+            try {
+                for (int i = 0; i < 8; i++) {
+                    ptsBytes[i] = (byte) (ptsUs >>> (56 - 8 * i));
+                }
+                raf.write(ptsBytes);
+                raf.write(nv21, 0, frameLength);
+                bytes += 8 + frameLength;
+                frameCount++;
+                return true;
+            } catch (IOException e) {
+                LogUtil.log("【CS】【FrameCache】写入缓存失败: " + e);
+                abort();
+                return false;
+            }
+        }
+
+        /**
+         * 追加直接缓冲区中的一帧（从 position 0 起），经 FileChannel 写出，不拷贝到 Java 堆。
+         *
+         * @return false 表示已放弃录制（调用方应丢弃该 Writer）
+         */
+        public boolean append(ByteBuffer nv21, int width, int height, long ptsUs) {
+            if (!accept(width, height)) {
+                return false;
+            }
+            try {
+                FileChannel channel = raf.getChannel();
+                ptsBuffer.clear();
+                ptsBuffer.putLong(0, ptsUs);
+                while (ptsBuffer.hasRemaining()) {
+                    channel.write(ptsBuffer);
+                }
+                ByteBuffer src = nv21.duplicate();
+                src.limit(frameLength);
+                src.position(0);
+                while (src.hasRemaining()) {
+                    channel.write(src);
+                }
+                bytes += 8 + frameLength;
+                frameCount++;
+                return true;
+            } catch (IOException e) {
+                LogUtil.log("【CS】【FrameCache】写入缓存失败: " + e);
+                abort();
+                return false;
+            }
+        }
+
+        private boolean accept(int width, int height) {
+            if (raf == null) {
+                return false;
+            }
+            if (width != this.width || height != this.height || bytes + 8 + frameLength > budget
+                    || bytes + 8 + frameLength > Integer.MAX_VALUE) {
+                abort();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * 完成录制并以只读映射打开。
+         */
+        public FrameCache finish() {
+            if (raf == null || frameCount == 0) {
+                abort();
+                return null;
+            }
+            try {
+                raf.seek(0);
+                raf.writeInt(MAGIC);
+                raf.writeInt(VERSION);
+                raf.writeInt(width);
+                raf.writeInt(height);
+                raf.writeInt(frameLength);
+                raf.writeInt(frameCount);
+                raf.writeUTF(key);
+                raf.close();
+                raf = null;
+                File file = fileFor(dir, key);
+                if (!tmpFile.renameTo(file)) {
+                    throw new IOException("rename failed: " + file);
+                }
+                LogUtil.log("【CS】【FrameCache】缓存完成 " + frameCount + " 帧, " + bytes / 1024 + "KB");
+            } catch (IOException e) {
+                LogUtil.log("【CS】【FrameCache】完成缓存失败: " + e);
+                abort();
+                return null;
+            }
+            return open(dir, key);
+        }
+
+        public void abort() {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ignored) {
+                }
+                raf = null;
+            }
+            tmpFile.delete();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.camswap;
+
+import com.example.camswap.frame.DirectBufferPool;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单生产者 / 多消费者的帧环形缓冲区，替代原先 HookMain.data_buffer 的数组交换。
+ * <p>
+ * 解码线程通过 {@link #claim(int)} 拿到一个空闲槽位，直接写入 NV21 数据后
+ * {@link #publish(Slot, int, int, int, long)}；预览回调线程通过
+ * {@link #acquireLatest()} / {@link #release(Slot)} 或 {@link #copyLatest(byte[])}
+ * 读取最新一帧。每个槽位带引用计数（-1 表示生产者正在写），因此读者持有的
+ * 槽位不会被覆盖，也不会再出现“读到已归还给 BytePool 的数组”导致的花屏。
+ * <p>
+ * 环记录消费者最近一次读取的时间，生产者通过 {@link #wantsFrame()} 判断是否还有人在取帧，
+ * 没有读者时跳过转换，只保持解码进度。
+ * <p>
+ * {@link #setDirect(boolean)} 打开后槽位改用池化的直接 ByteBuffer 存放帧（{@link Slot#buffer()}），
+ * 生产者从解码器 / GL 读回 / mmap 缓存批量写入，只在 {@link #copyLatest(byte[])} 拷到应用数组时接触 Java 堆。
+ */
+public final class FrameRing {
+    private static final int WRITING = -1;
+    /** 超过该时长没有读取即视为没有消费者 */
+    public static final long CONSUMER_IDLE_NS = 1_000_000_000L;
+
+    public static final class Slot {
+        private byte[] data;
+        private ByteBuffer buffer;
+        private volatile int width;
+        private volatile int height;
+        private volatile int length;
+        private volatile long sequence;
+        private volatile long ptsUs;
+        private final AtomicInteger refs = new AtomicInteger(0);
+
+        /**
+         * 堆数组存储；直接内存模式下为 null。
+         */
+        public byte[] data() {
+            return data;
+        }
+
+        /**
+         * 直接内存存储（position 0，limit 为容量）；堆数组模式下为 null。
+         */
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        /**
+         * 把帧数据拷贝到 dst（按 dst 长度截断），两种存储方式都适用。
+         */
+        public void copyTo(byte[] dst) {
+            int n = Math.min(length, dst.length);
+            if (buffer != null) {
+                ByteBuffer src = buffer.duplicate();
+                src.position(0);
+                src.get(dst, 0, n);
+            } else {
+                System.arraycopy(data, 0, dst, 0, n);
+            }
+        }
+
+        public int width() {
+            return width;
+        }
+
+        public int height() {
+            return height;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public long sequence() {
+            return sequence;
+        }
+
+        public long ptsUs() {
+            return ptsUs;
+        }
+    }
+
+    private static final Metrics.Counter published = Metrics.counter("ring.published");
+    private static final Metrics.Counter full = Metrics.counter("ring.full");
+    private static final Metrics.Counter reads = Metrics.counter("ring.reads");
+
+    private final Slot[] slots;
+    private final AtomicReference<Slot> latest = new AtomicReference<>();
+    private final AtomicLong sequence = new AtomicLong(0);
+    private volatile long lastReadNs = System.nanoTime();
+    private volatile boolean direct;
+
+    public FrameRing(int slotCount) {
+        if (slotCount < 2) {
+            throw new IllegalArgumentException("slotCount must be >= 2");
+        }
+        slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * 生产者：获取一个可写槽位（不是当前最新帧且没有读者持有）。
+     * 槽位缓冲区不足 capacity 时按需扩容，之后同尺寸帧不再分配。
+     *
+     * @return 可写槽位；所有槽位都被读者占用时返回 null（调用方应丢弃该帧）
+     */
+    public Slot claim(int capacity) {
+        Slot current = latest.get();
+        for (Slot slot : slots) {
+            if (slot == current) {
+                continue;
+            }
+            if (slot.refs.compareAndSet(0, WRITING)) {
+                if (direct) {
+                    slot.data = null;
+                    if (slot.buffer == null || slot.buffer.capacity() < capacity) {
+                        DirectBufferPool.release(slot.buffer);
+                        slot.buffer = DirectBufferPool.acquire(capacity);
+                    }
+                    slot.buffer.clear();
+                } else {
+                    if (slot.buffer != null) {
+                        DirectBufferPool.release(slot.buffer);
+                        slot.buffer = null;
+                    }
+                    if (slot.data == null || slot.data.length < capacity) {
+                        slot.data = new byte[capacity];
+                    }
+                }
+                return slot;
+            }
+        }
+        full.inc();
+        return null;
+    }
+
+    /**
+     * 生产者：写入完成，将槽位发布为最新帧。
+     */
+    public void publish(Slot slot, int width, int height, int length, long ptsUs) {
+        slot.width = width;
+        slot.height = height;
+        slot.length = length;
+        slot.ptsUs = ptsUs;
+        slot.sequence = sequence.incrementAndGet();
+        slot.refs.set(0);
+        latest.set(slot);
+        published.inc();
+    }
+
+    /**
+     * 生产者：放弃已 claim 的槽位（例如转换失败）。
+     */
+    public void abort(Slot slot) {
+        if (slot != null) {
+            slot.refs.set(0);
+        }
+    }
+
+    /**
+     * 消费者：引用最新帧，使用完必须调用 {@link #release(Slot)}。
+     *
+     * @return 最新帧槽位，尚无任何帧时返回 null
+     */
+    public Slot acquireLatest() {
+        lastReadNs = System.nanoTime();
+        reads.inc();
+        while (true) {
+            Slot slot = latest.get();
+            if (slot == null) {
+                return null;
+            }
+            int n = slot.refs.get();
+            if (n >= 0 && slot.refs.compareAndSet(n, n + 1)) {
+                return slot;
+            }
+            // 槽位已被生产者回收重写，重新读取 latest
+            Thread.yield();
+        }
+    }
+
+    public void release(Slot slot) {
+        if (slot != null) {
+            slot.refs.decrementAndGet();
+        }
+    }
+
+    /**
+     * 消费者：把最新帧拷贝到 dst（按 dst 长度截断）。
+     *
+     * @return 拷贝帧的序号，尚无帧时返回 -1
+     */
+    public long copyLatest(byte[] dst) {
+        Slot slot = acquireLatest();
+        if (slot == null) {
+            return -1;
+        }
+        try {
+            slot.copyTo(dst);
+            return slot.sequence;
+        } finally {
+            release(slot);
+        }
+    }
+
+    /**
+     * 切换槽位存储方式，之后 claim 的槽位生效。
+     */
+    public void setDirect(boolean direct) {
+        this.direct = direct;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public boolean hasFrame() {
+        return latest.get() != null;
+    }
+
+    /**
+     * 生产者：是否需要产出新帧。尚无帧时总是需要；已有帧但消费者超过
+     * {@link #CONSUMER_IDLE_NS} 没有读取时返回 false。
+     */
+    public boolean wantsFrame() {
+        return wantsFrame(System.nanoTime());
+    }
+
+    boolean wantsFrame(long nowNs) {
+        return latest.get() == null || nowNs - lastReadNs < CONSUMER_IDLE_NS;
+    }
+
+    /**
+     * 切换视频 / 释放相机时丢弃当前帧，避免旧视频的最后一帧被继续输出。
+     */
+    public void clear() {
+        latest.set(null);
+        lastReadNs = System.nanoTime();
+    }
+}
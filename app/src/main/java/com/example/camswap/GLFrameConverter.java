@@ -0,0 +1,676 @@
+package com.example.camswap;
+
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.opengl.Matrix;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Surface;
+
+import com.example.camswap.frame.ConversionPlan;
+import com.example.camswap.utils.LogUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存解码路径的 GPU 转换器。
+ * <p>
+ * 解码器直接输出到 SurfaceTexture，由着色器完成旋转 + 居中裁剪 + 缩放：
+ * <ul>
+ * <li>有目标 Surface（Camera2 reader）时直接绘制上去，不再经过 JPEG 压缩 / 解码 / Canvas；</li>
+ * <li>有 CPU 消费者（帧环）时再用打包着色器把画面编码成 NV21（每个 RGBA 像素装 4 个字节），
+ * GLES3 下通过双 PBO 异步读回（晚一帧取数据，不阻塞 GPU），GLES2 下退化为同步 glReadPixels。</li>
+ * </ul>
+ * 没有可用 GL 上下文时 {@link #createSafely} 返回 null，调用方继续走 CPU 路径。
+ */
+public class GLFrameConverter implements SurfaceTexture.OnFrameAvailableListener {
+    private static final String TAG = "GLFrameConverter";
+
+    private static final String PACK_VERTEX_SHADER = "attribute vec4 aPosition;\n" +
+            "void main() {\n" +
+            "    gl_Position = aPosition;\n" +
+            "}\n";
+
+    /**
+     * 把 uSize 大小的 RGB 纹理（第 0 行为画面顶部）打包成 NV21。
+     * 输出宽 uSize.x / 4，高 uSize.y * 3 / 2：前 uSize.y 行每像素 4 个 Y，
+     * 其后每像素 2 组 VU（取 2x2 块中心，线性过滤即为块平均）。系数与 ImageUtils 一致（BT.601 limited）。
+     */
+    private static final String PACK_FRAGMENT_SHADER = "precision highp float;\n" +
+            "uniform sampler2D sRgb;\n" +
+            "uniform vec2 uSize;\n" +
+            "float lum(vec2 p) {\n" +
+            "    vec3 c = texture2D(sRgb, p / uSize).rgb;\n" +
+            "    return dot(c, vec3(0.257, 0.504, 0.098)) + 0.0625;\n" +
+            "}\n" +
+            "vec2 vu(vec2 p) {\n" +
+            "    vec3 c = texture2D(sRgb, p / uSize).rgb;\n" +
+            "    return vec2(dot(c, vec3(0.439, -0.368, -0.071)), dot(c, vec3(-0.148, -0.291, 0.439))) + 0.5;\n" +
+            "}\n" +
+            "void main() {\n" +
+            "    vec2 fc = floor(gl_FragCoord.xy);\n" +
+            "    float x = fc.x * 4.0;\n" +
+            "    if (fc.y < uSize.y) {\n" +
+            "        float y = fc.y + 0.5;\n" +
+            "        gl_FragColor = vec4(lum(vec2(x + 0.5, y)), lum(vec2(x + 1.5, y)),\n" +
+            "                lum(vec2(x + 2.5, y)), lum(vec2(x + 3.5, y)));\n" +
+            "    } else {\n" +
+            "        float y = (fc.y - uSize.y) * 2.0 + 1.0;\n" +
+            "        gl_FragColor = vec4(vu(vec2(x + 1.0, y)), vu(vec2(x + 3.0, y)));\n" +
+            "    }\n" +
+            "}\n";
+
+    // EGL
+    private EGLDisplay mEGLDisplay = EGL14.EGL_NO_DISPLAY;
+    private EGLContext mEGLContext = EGL14.EGL_NO_CONTEXT;
+    private EGLSurface mEGLPbufferSurface = EGL14.EGL_NO_SURFACE;
+    private EGLSurface mEGLWindowSurface = EGL14.EGL_NO_SURFACE;
+    private boolean mGles3;
+
+    // GL
+    private int mOesProgram;
+    private int mPackProgram;
+    private int mOesTextureId;
+    private final int[] mRgbTexture = new int[1];
+    private final int[] mRgbFbo = new int[1];
+    private final int[] mPackTexture = new int[1];
+    private final int[] mPackFbo = new int[1];
+    private final int[] mPbo = new int[2];
+    private final long[] mFence = new long[2];
+    private final long[] mPendingPts = new long[2];
+    private int mPboIndex;
+    private ByteBuffer mSyncBuffer;
+
+    // Input/Output
+    private SurfaceTexture mInputSurfaceTexture;
+    private Surface mInputSurface;
+    private final Surface mTargetSurface;
+    private final FrameRing mRing;
+
+    // Matrices
+    private final float[] mSTMatrix = new float[16];
+    private final float[] mFrameMatrix = new float[16];
+    private final float[] mTexMatrix = new float[16];
+    private final float[] mIdentity = new float[16];
+
+    // 几何：解码线程构造不可变的 ConversionPlan，通过 volatile 引用整体发布，GL 线程每帧读一次
+    private volatile ConversionPlan mPlan;
+    private int mFboWidth;
+    private int mFboHeight;
+    private boolean mWarnedAlign;
+
+    // State
+    private volatile boolean mReleased = false;
+    private boolean mInitialized = false;
+
+    // Thread
+    private HandlerThread mGLThread;
+    private Handler mGLHandler;
+
+    private final String mTag;
+
+    private FloatBuffer mVertexBuffer;
+    private FloatBuffer mTexCoordBuffer;
+
+    /**
+     * @param targetSurface 直接绘制的目标 Surface，可为 null
+     * @param ring          需要 NV21 字节时的帧环，为 null 时不做读回
+     */
+    public GLFrameConverter(Surface targetSurface, FrameRing ring, String tag) {
+        mTargetSurface = targetSurface;
+        mRing = ring;
+        mTag = tag;
+        Matrix.setIdentityM(mSTMatrix, 0);
+        Matrix.setIdentityM(mIdentity, 0);
+
+        mGLThread = new HandlerThread("GLConvert-" + tag);
+        mGLThread.start();
+        mGLHandler = new Handler(mGLThread.getLooper());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        mGLHandler.post(() -> {
+            try {
+                initEGL();
+                initGL();
+                mInitialized = true;
+                LogUtil.log("【CS】【GLConvert】" + mTag + " 初始化成功, GLES" + (mGles3 ? "3" : "2")
+                        + ", surface=" + (mEGLWindowSurface != EGL14.EGL_NO_SURFACE) + ", readback=" + (mRing != null));
+            } catch (Exception e) {
+                LogUtil.log("【CS】【GLConvert】" + mTag + " 初始化失败: " + e);
+                mInitialized = false;
+            }
+            latch.countDown();
+        });
+
+        try {
+            if (!latch.await(3000, TimeUnit.MILLISECONDS)) {
+                LogUtil.log("【CS】【GLConvert】" + mTag + " 初始化超时");
+            }
+        } catch (InterruptedException e) {
+            LogUtil.log("【CS】【GLConvert】" + mTag + " 初始化被中断");
+        }
+    }
+
+    /**
+     * 打包着色器每个输出像素写 4 个亮度字节、色度按 2 行合并，宽须为 4 的倍数、高须为偶数。
+     * 不满足时调用方应改走 CPU 转换。
+     */
+    public static boolean canPack(ConversionPlan plan) {
+        return (plan.outWidth & 3) == 0 && (plan.outHeight & 1) == 0;
+    }
+
+    /**
+     * 安全创建转换器，没有 GL 或没有任何输出时返回 null（调用方走 CPU 路径）。
+     */
+    public static GLFrameConverter createSafely(Surface targetSurface, FrameRing ring, String tag) {
+        try {
+            GLFrameConverter converter = new GLFrameConverter(targetSurface, ring, tag);
+            if (converter.isInitialized()) {
+                return converter;
+            }
+            converter.release();
+        } catch (Exception e) {
+            LogUtil.log("【CS】【GLConvert】创建失败: " + e);
+        }
+        return null;
+    }
+
+    public boolean isInitialized() {
+        return mInitialized && !mReleased;
+    }
+
+    /**
+     * 获取输入 Surface，供 MediaCodec.configure() 使用。
+     */
+    public Surface getInputSurface() {
+        return mInputSurface;
+    }
+
+    /**
+     * 设置下一帧的转换方案（源尺寸、旋转、裁剪、输出尺寸），解码线程在 releaseOutputBuffer(id, true) 前调用。
+     */
+    public void setPlan(ConversionPlan plan) {
+        mPlan = plan;
+    }
+
+    @Override
+    public void onFrameAvailable(SurfaceTexture surfaceTexture) {
+        if (mReleased || !mInitialized)
+            return;
+        drawFrame();
+    }
+
+    private void drawFrame() {
+        if (mReleased || !mInitialized)
+            return;
+        try {
+            if (!EGL14.eglMakeCurrent(mEGLDisplay, mEGLPbufferSurface, mEGLPbufferSurface, mEGLContext)) {
+                return;
+            }
+            mInputSurfaceTexture.updateTexImage();
+            mInputSurfaceTexture.getTransformMatrix(mSTMatrix);
+            long ptsUs = mInputSurfaceTexture.getTimestamp() / 1000;
+
+            ConversionPlan plan = mPlan;
+            if (plan == null || plan.outWidth <= 0 || plan.outHeight <= 0) {
+                return;
+            }
+            int rotation = plan.rotation;
+            int outW = plan.outWidth;
+            int outH = plan.outHeight;
+            int rotW = plan.rotatedWidth;
+            int rotH = plan.rotatedHeight;
+            int[] crop = plan.crop();
+
+            if (mEGLWindowSurface != EGL14.EGL_NO_SURFACE) {
+                drawToWindow(rotation, crop, rotW, rotH);
+            }
+            // 没有消费者取帧时跳过打包与读回
+            if (mRing != null && mRing.wantsFrame()) {
+                // 调用方按 canPack 选择转换路径，这里只防御方案在两帧之间变化的情况
+                if (!canPack(plan)) {
+                    if (!mWarnedAlign) {
+                        mWarnedAlign = true;
+                        LogUtil.log("【CS】【GLConvert】输出尺寸无法打包，跳过读回: " + outW + "x" + outH);
+                    }
+                    return;
+                }
+                ensureTargets(outW, outH);
+                frameTransform(rotation, crop, rotW, rotH, false, mFrameMatrix);
+                Matrix.multiplyMM(mTexMatrix, 0, mSTMatrix, 0, mFrameMatrix, 0);
+
+                // 第一遍：OES -> 旋转/裁剪/缩放后的 RGB 纹理（第 0 行为画面顶部）
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mRgbFbo[0]);
+                GLES20.glViewport(0, 0, outW, outH);
+                drawOes(mTexMatrix);
+
+                // 第二遍：RGB -> NV21 打包
+                int packedW = outW / 4;
+                int packedH = outH * 3 / 2;
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mPackFbo[0]);
+                GLES20.glViewport(0, 0, packedW, packedH);
+                GLES20.glUseProgram(mPackProgram);
+                GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+                GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mRgbTexture[0]);
+                GLES20.glUniform1i(GLES20.glGetUniformLocation(mPackProgram, "sRgb"), 0);
+                GLES20.glUniform2f(GLES20.glGetUniformLocation(mPackProgram, "uSize"), outW, outH);
+                int position = GLES20.glGetAttribLocation(mPackProgram, "aPosition");
+                mVertexBuffer.position(0);
+                GLES20.glEnableVertexAttribArray(position);
+                GLES20.glVertexAttribPointer(position, 2, GLES20.GL_FLOAT, false, 0, mVertexBuffer);
+                GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+
+                readback(packedW, packedH, outW * outH * 3 / 2, ptsUs);
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+            }
+        } catch (Exception e) {
+            LogUtil.log("【CS】【GLConvert】" + mTag + " drawFrame 异常: " + e);
+        }
+    }
+
+    private void drawToWindow(int rotation, int[] crop, int rotW, int rotH) {
+        if (!EGL14.eglMakeCurrent(mEGLDisplay, mEGLWindowSurface, mEGLWindowSurface, mEGLContext)) {
+            return;
+        }
+        int[] width = new int[1];
+        int[] height = new int[1];
+        EGL14.eglQuerySurface(mEGLDisplay, mEGLWindowSurface, EGL14.EGL_WIDTH, width, 0);
+        EGL14.eglQuerySurface(mEGLDisplay, mEGLWindowSurface, EGL14.EGL_HEIGHT, height, 0);
+        if (width[0] > 0 && height[0] > 0) {
+            GLES20.glViewport(0, 0, width[0], height[0]);
+        }
+        // 窗口坐标底部为画面底部，纵向翻转
+        frameTransform(rotation, crop, rotW, rotH, true, mFrameMatrix);
+        Matrix.multiplyMM(mTexMatrix, 0, mSTMatrix, 0, mFrameMatrix, 0);
+        drawOes(mTexMatrix);
+        EGL14.eglSwapBuffers(mEGLDisplay, mEGLWindowSurface);
+        EGL14.eglMakeCurrent(mEGLDisplay, mEGLPbufferSurface, mEGLPbufferSurface, mEGLContext);
+    }
+
+    private void drawOes(float[] texMatrix) {
+        GLES20.glUseProgram(mOesProgram);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, mOesTextureId);
+        GLES20.glUniformMatrix4fv(GLES20.glGetUniformLocation(mOesProgram, "uSTMatrix"), 1, false, texMatrix, 0);
+        GLES20.glUniformMatrix4fv(GLES20.glGetUniformLocation(mOesProgram, "uRotMatrix"), 1, false, mIdentity, 0);
+
+        int position = GLES20.glGetAttribLocation(mOesProgram, "aPosition");
+        int texCoord = GLES20.glGetAttribLocation(mOesProgram, "aTextureCoord");
+        mVertexBuffer.position(0);
+        GLES20.glEnableVertexAttribArray(position);
+        GLES20.glVertexAttribPointer(position, 2, GLES20.GL_FLOAT, false, 0, mVertexBuffer);
+        mTexCoordBuffer.position(0);
+        GLES20.glEnableVertexAttribArray(texCoord);
+        GLES20.glVertexAttribPointer(texCoord, 2, GLES20.GL_FLOAT, false, 0, mTexCoordBuffer);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+    }
+
+    /**
+     * 输出坐标 (s, t)（t = 0 为画面顶部）到 SurfaceTexture 纹理坐标（变换矩阵之前，v = 0 为底部）的仿射变换。
+     * 先在旋转后的画面上取居中裁剪区域，再逆旋转回源画面。
+     *
+     * @param flipT 输出纵向翻转（绘制到窗口时第 0 行在底部）
+     */
+    static void frameTransform(int rotation, int[] crop, int rotW, int rotH, boolean flipT, float[] out) {
+        float cx = (float) crop[0] / rotW;
+        float cy = (float) crop[1] / rotH;
+        float cw = (float) crop[2] / rotW;
+        float ch = (float) crop[3] / rotH;
+        // 源画面坐标 sx = p0 + p1 * s' + p2 * t'，sy = q0 + q1 * s' + q2 * t'（s', t' 为旋转后画面坐标）
+        float p0, p1, p2, q0, q1, q2;
+        switch (rotation) {
+            case 90:
+                p0 = 0; p1 = 0; p2 = 1;
+                q0 = 1; q1 = -1; q2 = 0;
+                break;
+            case 180:
+                p0 = 1; p1 = -1; p2 = 0;
+                q0 = 1; q1 = 0; q2 = -1;
+                break;
+            case 270:
+                p0 = 1; p1 = 0; p2 = -1;
+                q0 = 0; q1 = 1; q2 = 0;
+                break;
+            default:
+                p0 = 0; p1 = 1; p2 = 0;
+                q0 = 0; q1 = 0; q2 = 1;
+                break;
+        }
+        // u = sx，v = 1 - sy
+        float a = p1 * cw;
+        float b = p2 * ch;
+        float c = p0 + p1 * cx + p2 * cy;
+        float d = -q1 * cw;
+        float e = -q2 * ch;
+        float f = 1 - q0 - q1 * cx - q2 * cy;
+        if (flipT) {
+            c += b;
+            b = -b;
+            f += e;
+            e = -e;
+        }
+        for (int i = 0; i < 16; i++) {
+            out[i] = 0;
+        }
+        // column-major
+        out[0] = a;
+        out[1] = d;
+        out[4] = b;
+        out[5] = e;
+        out[10] = 1;
+        out[12] = c;
+        out[13] = f;
+        out[15] = 1;
+    }
+
+    private void ensureTargets(int width, int height) {
+        if (width == mFboWidth && height == mFboHeight) {
+            return;
+        }
+        deleteTargets();
+        createTarget(mRgbTexture, mRgbFbo, width, height);
+        createTarget(mPackTexture, mPackFbo, width / 4, height * 3 / 2);
+        int length = width * height * 3 / 2;
+        if (mGles3) {
+            GLES30.glGenBuffers(2, mPbo, 0);
+            for (int pbo : mPbo) {
+                GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pbo);
+                GLES30.glBufferData(GLES30.GL_PIXEL_PACK_BUFFER, length, null, GLES30.GL_STREAM_READ);
+            }
+            GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+        } else {
+            mSyncBuffer = ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+        }
+        GLES20.glPixelStorei(GLES20.GL_PACK_ALIGNMENT, 4);
+        mFboWidth = width;
+        mFboHeight = height;
+        LogUtil.log("【CS】【GLConvert】" + mTag + " 输出尺寸 " + width + "x" + height);
+    }
+
+    private static void createTarget(int[] texture, int[] fbo, int width, int height) {
+        GLES20.glGenTextures(1, texture, 0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture[0]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0, GLES20.GL_RGBA,
+                GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glGenFramebuffers(1, fbo, 0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, fbo[0]);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D,
+                texture[0], 0);
+        int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+            throw new RuntimeException("Framebuffer incomplete: " + status);
+        }
+    }
+
+    private void deleteTargets() {
+        for (int i = 0; i < 2; i++) {
+            if (mFence[i] != 0) {
+                GLES30.glDeleteSync(mFence[i]);
+                mFence[i] = 0;
+            }
+        }
+        if (mPbo[0] != 0) {
+            GLES30.glDeleteBuffers(2, mPbo, 0);
+            mPbo[0] = 0;
+            mPbo[1] = 0;
+        }
+        if (mRgbFbo[0] != 0) {
+            GLES20.glDeleteFramebuffers(1, mRgbFbo, 0);
+            GLES20.glDeleteTextures(1, mRgbTexture, 0);
+            mRgbFbo[0] = 0;
+        }
+        if (mPackFbo[0] != 0) {
+            GLES20.glDeleteFramebuffers(1, mPackFbo, 0);
+            GLES20.glDeleteTextures(1, mPackTexture, 0);
+            mPackFbo[0] = 0;
+        }
+        mFboWidth = 0;
+        mFboHeight = 0;
+    }
+
+    /**
+     * 读回当前打包帧。GLES3：本帧 glReadPixels 进 PBO 后立即返回，取上一帧 PBO 的数据发布；
+     * GLES2：同步读取。
+     */
+    private void readback(int packedW, int packedH, int length, long ptsUs) {
+        if (!mGles3) {
+            mSyncBuffer.clear();
+            GLES20.glReadPixels(0, 0, packedW, packedH, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, mSyncBuffer);
+            publish(mSyncBuffer, length, ptsUs);
+            return;
+        }
+        int cur = mPboIndex;
+        mPboIndex ^= 1;
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, mPbo[cur]);
+        GLES30.glReadPixels(0, 0, packedW, packedH, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, 0);
+        if (mFence[cur] != 0) {
+            GLES30.glDeleteSync(mFence[cur]);
+        }
+        mFence[cur] = GLES30.glFenceSync(GLES30.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        mPendingPts[cur] = ptsUs;
+
+        int prev = cur ^ 1;
+        if (mFence[prev] != 0) {
+            // 上一帧的读回通常早已完成；最多等 5ms，超时则丢弃该帧
+            int wait = GLES30.glClientWaitSync(mFence[prev], GLES30.GL_SYNC_FLUSH_COMMANDS_BIT, 5_000_000L);
+            GLES30.glDeleteSync(mFence[prev]);
+            mFence[prev] = 0;
+            if (wait == GLES30.GL_ALREADY_SIGNALED || wait == GLES30.GL_CONDITION_SATISFIED) {
+                GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, mPbo[prev]);
+                ByteBuffer mapped = (ByteBuffer) GLES30.glMapBufferRange(GLES30.GL_PIXEL_PACK_BUFFER, 0, length,
+                        GLES30.GL_MAP_READ_BIT);
+                if (mapped != null) {
+                    publish(mapped, length, mPendingPts[prev]);
+                    GLES30.glUnmapBuffer(GLES30.GL_PIXEL_PACK_BUFFER);
+                }
+            }
+        }
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+    }
+
+    private void publish(ByteBuffer nv21, int length, long ptsUs) {
+        FrameRing.Slot slot = mRing.claim(length);
+        if (slot == null) {
+            return; // 所有槽位都被读者持有，丢弃本帧
+        }
+        nv21.position(0);
+        ByteBuffer direct = slot.buffer();
+        if (direct != null) {
+            // 直接内存槽位：PBO 映射内存到直接缓冲区的原生拷贝
+            nv21.limit(length);
+            direct.clear();
+            direct.put(nv21);
+        } else {
+            nv21.get(slot.data(), 0, length);
+        }
+        mRing.publish(slot, mFboWidth, mFboHeight, length, ptsUs);
+    }
+
+    private void initEGL() {
+        mEGLDisplay = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        if (mEGLDisplay == EGL14.EGL_NO_DISPLAY)
+            throw new RuntimeException("eglGetDisplay failed");
+
+        int[] version = new int[2];
+        if (!EGL14.eglInitialize(mEGLDisplay, version, 0, version, 1))
+            throw new RuntimeException("eglInitialize failed");
+
+        // 优先 GLES3（PBO 异步读回），不支持时退回 GLES2
+        EGLConfig config = chooseConfig(EGLExt.EGL_OPENGL_ES3_BIT_KHR);
+        if (config != null) {
+            mEGLContext = EGL14.eglCreateContext(mEGLDisplay, config, EGL14.EGL_NO_CONTEXT,
+                    new int[] { EGL14.EGL_CONTEXT_CLIENT_VERSION, 3, EGL14.EGL_NONE }, 0);
+            mGles3 = mEGLContext != EGL14.EGL_NO_CONTEXT;
+        }
+        if (!mGles3) {
+            config = chooseConfig(EGL14.EGL_OPENGL_ES2_BIT);
+            if (config == null)
+                throw new RuntimeException("No matching EGL config");
+            mEGLContext = EGL14.eglCreateContext(mEGLDisplay, config, EGL14.EGL_NO_CONTEXT,
+                    new int[] { EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE }, 0);
+            if (mEGLContext == EGL14.EGL_NO_CONTEXT)
+                throw new RuntimeException("eglCreateContext failed");
+        }
+
+        int[] pbufferAttribs = {
+                EGL14.EGL_WIDTH, 1,
+                EGL14.EGL_HEIGHT, 1,
+                EGL14.EGL_NONE
+        };
+        mEGLPbufferSurface = EGL14.eglCreatePbufferSurface(mEGLDisplay, config, pbufferAttribs, 0);
+        if (mEGLPbufferSurface == EGL14.EGL_NO_SURFACE)
+            throw new RuntimeException("eglCreatePbufferSurface failed");
+
+        if (mTargetSurface != null) {
+            int[] surfaceAttribs = { EGL14.EGL_NONE };
+            mEGLWindowSurface = EGL14.eglCreateWindowSurface(mEGLDisplay, config, mTargetSurface, surfaceAttribs, 0);
+            if (mEGLWindowSurface == EGL14.EGL_NO_SURFACE) {
+                LogUtil.log("【CS】【GLConvert】eglCreateWindowSurface 失败: " + EGL14.eglGetError());
+            }
+        }
+        if (mEGLWindowSurface == EGL14.EGL_NO_SURFACE && mRing == null)
+            throw new RuntimeException("no output: window surface unavailable and readback disabled");
+
+        if (!EGL14.eglMakeCurrent(mEGLDisplay, mEGLPbufferSurface, mEGLPbufferSurface, mEGLContext))
+            throw new RuntimeException("eglMakeCurrent failed");
+    }
+
+    private EGLConfig chooseConfig(int renderableType) {
+        int[] attribList = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_ALPHA_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, renderableType,
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_WINDOW_BIT | EGL14.EGL_PBUFFER_BIT,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] numConfigs = new int[1];
+        if (!EGL14.eglChooseConfig(mEGLDisplay, attribList, 0, configs, 0, 1, numConfigs, 0) || numConfigs[0] == 0) {
+            return null;
+        }
+        return configs[0];
+    }
+
+    private void initGL() {
+        mOesProgram = createProgram(GLHelper.VERTEX_SHADER, GLHelper.FRAGMENT_SHADER);
+        mPackProgram = createProgram(PACK_VERTEX_SHADER, PACK_FRAGMENT_SHADER);
+
+        int[] textures = new int[1];
+        GLES20.glGenTextures(1, textures, 0);
+        mOesTextureId = textures[0];
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, mOesTextureId);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+        // 帧到达回调直接在 GL 线程上执行
+        mInputSurfaceTexture = new SurfaceTexture(mOesTextureId);
+        mInputSurfaceTexture.setOnFrameAvailableListener(this, mGLHandler);
+        mInputSurface = new Surface(mInputSurfaceTexture);
+
+        mVertexBuffer = GLHelper.createFloatBuffer(GLHelper.VERTICES);
+        mTexCoordBuffer = GLHelper.createFloatBuffer(GLHelper.TEX_COORDS);
+    }
+
+    private static int createProgram(String vertexSource, String fragmentSource) {
+        int vertexShader = GLHelper.loadShader(GLES20.GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader = GLHelper.loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+
+        int[] linkStatus = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] != GLES20.GL_TRUE) {
+            String error = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new RuntimeException("Program link failed: " + error);
+        }
+        return program;
+    }
+
+    /**
+     * 释放所有 GL/EGL 资源。调用后该转换器不可再使用。
+     */
+    public void release() {
+        if (mReleased)
+            return;
+        mReleased = true;
+        if (mGLHandler != null) {
+            mGLHandler.post(this::releaseInternal);
+        }
+        if (mGLThread != null) {
+            mGLThread.quitSafely();
+            try {
+                mGLThread.join(1000);
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    private void releaseInternal() {
+        if (mEGLContext != EGL14.EGL_NO_CONTEXT) {
+            EGL14.eglMakeCurrent(mEGLDisplay, mEGLPbufferSurface, mEGLPbufferSurface, mEGLContext);
+            deleteTargets();
+        }
+        if (mInputSurface != null) {
+            mInputSurface.release();
+            mInputSurface = null;
+        }
+        if (mInputSurfaceTexture != null) {
+            mInputSurfaceTexture.release();
+            mInputSurfaceTexture = null;
+        }
+        if (mOesProgram != 0) {
+            GLES20.glDeleteProgram(mOesProgram);
+            mOesProgram = 0;
+        }
+        if (mPackProgram != 0) {
+            GLES20.glDeleteProgram(mPackProgram);
+            mPackProgram = 0;
+        }
+        if (mOesTextureId != 0) {
+            GLES20.glDeleteTextures(1, new int[] { mOesTextureId }, 0);
+            mOesTextureId = 0;
+        }
+        if (mEGLWindowSurface != EGL14.EGL_NO_SURFACE) {
+            EGL14.eglDestroySurface(mEGLDisplay, mEGLWindowSurface);
+            mEGLWindowSurface = EGL14.EGL_NO_SURFACE;
+        }
+        if (mEGLPbufferSurface != EGL14.EGL_NO_SURFACE) {
+            EGL14.eglDestroySurface(mEGLDisplay, mEGLPbufferSurface);
+            mEGLPbufferSurface = EGL14.EGL_NO_SURFACE;
+        }
+        if (mEGLContext != EGL14.EGL_NO_CONTEXT) {
+            EGL14.eglDestroyContext(mEGLDisplay, mEGLContext);
+            mEGLContext = EGL14.EGL_NO_CONTEXT;
+        }
+        if (mEGLDisplay != EGL14.EGL_NO_DISPLAY) {
+            // 默认 display 与同进程的 GLVideoRenderer 共用，这里只解绑不 terminate
+            EGL14.eglMakeCurrent(mEGLDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+            EGL14.eglReleaseThread();
+            mEGLDisplay = EGL14.EGL_NO_DISPLAY;
+        }
+    }
+}
@@ -35,6 +35,8 @@ import android.graphics.Bitmap;
  */
 public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener {
     private static final String TAG = "GLVideoRenderer";
+    private static final Metrics.Counter drawnFrames = Metrics.counter("gl.frames");
+    private static final Metrics.Histogram drawUs = Metrics.histogram("gl.draw_us");
 
     // EGL
     private EGLDisplay mEGLDisplay = EGL14.EGL_NO_DISPLAY;
@@ -141,6 +143,7 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
     private void drawFrame() {
         if (mReleased || !mInitialized)
             return;
+        long start = System.nanoTime();
         try {
             if (!EGL14.eglMakeCurrent(mEGLDisplay, mEGLSurface, mEGLSurface, mEGLContext)) {
                 return;
@@ -189,6 +192,8 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
             GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
 
             EGL14.eglSwapBuffers(mEGLDisplay, mEGLSurface);
+            drawUs.recordSinceNs(start);
+            drawnFrames.inc();
         } catch (Exception e) {
             LogUtil.log("【CS】【GL】" + mTag + " drawFrame 异常: " + e);
         }
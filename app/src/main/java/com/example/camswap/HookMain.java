@@ -34,7 +34,8 @@ public class HookMain implements IXposedHookLoadPackage {
     public static Camera origin_preview_camera;
     public static Camera camera_onPreviewFrame;
     public static Camera start_preview_camera;
-    public static volatile byte[] data_buffer = { 0 };
+    // 解码线程写入、onPreviewFrame 读取的 NV21 帧环
+    public static final FrameRing frameRing = new FrameRing(3);
     public static byte[] input;
     public static int mhight;
     public static int mwidth;
@@ -86,6 +87,9 @@ public class HookMain implements IXposedHookLoadPackage {
 
     public static void updateAllRendererRotations(int degrees) {
         playerManager.updateRotation(degrees);
+        if (hw_decode_obj != null) {
+            hw_decode_obj.setRotationOffset(degrees);
+        }
     }
 
     public static void releaseAllRenderers() {
@@ -121,6 +125,9 @@ public class HookMain implements IXposedHookLoadPackage {
                 @Override
                 public void onRotationChanged(int degrees) {
                     playerManager.updateRotation(degrees);
+                    if (hw_decode_obj != null) {
+                        hw_decode_obj.setRotationOffset(degrees);
+                    }
                 }
             });
             configWatcher.init(context);
@@ -210,6 +217,7 @@ public class HookMain implements IXposedHookLoadPackage {
                                 } catch (Throwable t) {
                                     LogUtil.log("【CS】Native audio hooks init failed: " + t);
                                 }
+                                MetricsReporter.start(toast_content);
                             } catch (Exception ee) {
                                 LogUtil.log("【CS】" + ee.toString());
                             }
@@ -0,0 +1,204 @@
+package com.example.camswap;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内的帧管线指标：无锁计数器、瞬时值和对数分桶的延迟直方图。
+ * <p>
+ * 指标按名字注册一次，热路径持有返回的句柄，每次记录只是一两次原子加。
+ * {@link #snapshot()} 汇总为 JSON（计数器附带距上次快照的每秒速率），
+ * 由 {@link MetricsReporter} 定期写文件并上报给 {@link VideoProvider}。
+ */
+public final class Metrics {
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static long lastSnapshotNs = System.nanoTime();
+
+    private Metrics() {
+    }
+
+    /**
+     * 单调递增计数器。
+     */
+    public static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+        private long lastSnapshot;
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void add(long n) {
+            value.addAndGet(n);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /**
+     * HDR 风格的对数线性直方图：每个 2 的幂区间再均分 {@link #SUB_BUCKETS} 个桶，
+     * 相对误差不超过 1/16，记录 O(1) 且不分配。值的单位由指标名约定（如 _us）。
+     */
+    public static final class Histogram {
+        static final int SUB_BITS = 4;
+        static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        static int bucketIndex(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) Math.max(value, 0);
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+        }
+
+        /** 桶内可能出现的最大值 */
+        static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        public void record(long value) {
+            counts.incrementAndGet(bucketIndex(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long m;
+            while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+                // retry
+            }
+        }
+
+        /**
+         * 记录从 startNs（System.nanoTime）到现在的耗时，单位微秒。
+         */
+        public void recordSinceNs(long startNs) {
+            record((System.nanoTime() - startNs) / 1000);
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * 分位数（0~1），返回所在桶的上界，不超过已记录的最大值；无数据时返回 0。
+         */
+        public long percentile(double q) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return Math.min(bucketUpperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        JSONObject toJson() throws JSONException {
+            long n = count.get();
+            JSONObject o = new JSONObject();
+            o.put("count", n);
+            o.put("mean", n > 0 ? sum.get() / n : 0);
+            o.put("p50", percentile(0.50));
+            o.put("p90", percentile(0.90));
+            o.put("p99", percentile(0.99));
+            o.put("max", max.get());
+            return o;
+        }
+    }
+
+    public static Counter counter(String name) {
+        Counter c = counters.get(name);
+        if (c == null) {
+            Counter created = new Counter();
+            c = counters.putIfAbsent(name, created);
+            if (c == null) {
+                c = created;
+            }
+        }
+        return c;
+    }
+
+    public static Histogram histogram(String name) {
+        Histogram h = histograms.get(name);
+        if (h == null) {
+            Histogram created = new Histogram();
+            h = histograms.putIfAbsent(name, created);
+            if (h == null) {
+                h = created;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * 注册快照时才采样的瞬时值（队列深度、池字节数等），同名覆盖。
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * 汇总所有指标。计数器的 rate 为距上次调用的每秒增量，应只由一个上报线程调用。
+     */
+    public static synchronized JSONObject snapshot() {
+        long now = System.nanoTime();
+        double elapsedSec = Math.max(1e-3, (now - lastSnapshotNs) / 1e9);
+        lastSnapshotNs = now;
+        JSONObject root = new JSONObject();
+        try {
+            JSONObject c = new JSONObject();
+            for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+                Counter counter = e.getValue();
+                long value = counter.get();
+                JSONObject o = new JSONObject();
+                o.put("count", value);
+                o.put("rate", Math.round((value - counter.lastSnapshot) / elapsedSec * 10) / 10.0);
+                counter.lastSnapshot = value;
+                c.put(e.getKey(), o);
+            }
+            JSONObject g = new JSONObject();
+            for (Map.Entry<String, LongSupplier> e : new TreeMap<>(gauges).entrySet()) {
+                g.put(e.getKey(), e.getValue().getAsLong());
+            }
+            JSONObject h = new JSONObject();
+            for (Map.Entry<String, Histogram> e : new TreeMap<>(histograms).entrySet()) {
+                h.put(e.getKey(), e.getValue().toJson());
+            }
+            root.put("timeMs", System.currentTimeMillis());
+            root.put("counters", c);
+            root.put("gauges", g);
+            root.put("histograms", h);
+        } catch (JSONException ignored) {
+        }
+        return root;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.camswap;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import com.example.camswap.frame.DirectBufferPool;
+import com.example.camswap.utils.LogUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在被 Hook 的进程里定期导出 {@link Metrics}：写入应用缓存目录的 camswap_metrics.json，
+ * 并通过 {@link VideoProvider#METHOD_METRICS} 上报给模块进程，供模块端按包名查询。
+ */
+public final class MetricsReporter {
+    static final String FILE_NAME = "camswap_metrics.json";
+    public static final String EXTRA_SNAPSHOT = "snapshot";
+
+    private static ScheduledExecutorService scheduler;
+    private static boolean providerFailed;
+
+    private MetricsReporter() {
+    }
+
+    /**
+     * 按 {@link ConfigManager#KEY_METRICS_INTERVAL_S} 启动定期导出，0 表示关闭。重复调用无副作用。
+     */
+    public static synchronized void start(Context context) {
+        if (scheduler != null || context == null) {
+            return;
+        }
+        int intervalSec = 10;
+        try {
+            intervalSec = HookMain.getConfig().getInt(ConfigManager.KEY_METRICS_INTERVAL_S, 10);
+        } catch (Exception ignored) {
+        }
+        if (intervalSec <= 0) {
+            return;
+        }
+        registerGauges();
+        final Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "CS-Metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> dump(app), intervalSec, intervalSec, TimeUnit.SECONDS);
+        LogUtil.log("【CS】【Metrics】每 " + intervalSec + " 秒导出指标");
+    }
+
+    private static void registerGauges() {
+        // frame 包不依赖本模块的类型，在这里代为注册
+        Metrics.gauge("directpool.allocated", DirectBufferPool::allocatedCount);
+    }
+
+    private static void dump(Context context) {
+        String json = Metrics.snapshot().toString();
+        File file = new File(context.getCacheDir(), FILE_NAME);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LogUtil.log("【CS】【Metrics】写入失败: " + e);
+        }
+        if (providerFailed) {
+            return;
+        }
+        try {
+            Bundle extras = new Bundle();
+            extras.putString(EXTRA_SNAPSHOT, json);
+            context.getContentResolver().call(VideoProvider.CONTENT_URI, VideoProvider.METHOD_METRICS, null, extras);
+        } catch (Exception e) {
+            // 模块进程不可见时只保留本地文件
+            providerFailed = true;
+            LogUtil.log("【CS】【Metrics】上报 Provider 失败，仅写本地文件: " + e);
+        }
+    }
+}
@@ -16,6 +16,7 @@ import de.robv.android.xposed.callbacks.XC_LoadPackage;
 
 import com.example.camswap.utils.AudioDataProvider;
 import com.example.camswap.utils.LogUtil;
+import com.example.camswap.utils.PlaybackCursor;
 import com.example.camswap.utils.VideoManager;
 
 /**
@@ -59,6 +60,8 @@ public class MicrophoneHandler implements ICameraHandler {
         final int audioFormat;
         final int bufferSize;
         final int channelCount;
+        // 该实例独立的播放位置：同一进程里多个录音（如 VAD、电平表）各读各的，不会互相跳帧
+        final PlaybackCursor cursor = new PlaybackCursor();
 
         AudioRecordParams(int audioSource, int sampleRate, int channelConfig,
                 int audioFormat, int bufferSize) {
@@ -244,8 +247,13 @@ public class MicrophoneHandler implements ICameraHandler {
         } catch (Exception e) {
             LogUtil.log(TAG + " 动态获取参数失败，使用默认值: " + e);
         }
-        return new AudioRecordParams(0, 44100,
-                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT, 4096);
+        // 默认参数同样按实例缓存，每个录音有自己的游标，也不必每次读取都重新获取
+        params = new AudioRecordParams(0, 44100, AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT, 4096);
+        if (audioRecord != null) {
+            recordParamsMap.put(audioRecord, params);
+        }
+        return params;
     }
 
     /**
@@ -462,11 +470,11 @@ public class MicrophoneHandler implements ICameraHandler {
 
                             if (isVideoSyncMode()) {
                                 long posMs = getVideoPlaybackPositionMs();
-                                AudioDataProvider.fillBytesAtPosition(buffer, offset, result,
+                                AudioDataProvider.fillBytes(p.cursor, buffer, offset, result,
                                         p.sampleRate, p.channelCount, posMs);
                             } else if (isReplaceMode()) {
-                                AudioDataProvider.fillBytes(buffer, offset, result,
-                                        p.sampleRate, p.channelCount);
+                                AudioDataProvider.fillBytes(p.cursor, buffer, offset, result,
+                                        p.sampleRate, p.channelCount, AudioDataProvider.LOOP);
                             } else {
                                 Arrays.fill(buffer, offset, offset + result, (byte) 0);
                             }
@@ -500,11 +508,11 @@ public class MicrophoneHandler implements ICameraHandler {
 
                             if (isVideoSyncMode()) {
                                 long posMs = getVideoPlaybackPositionMs();
-                                AudioDataProvider.fillShortsAtPosition(buffer, offset, result,
+                                AudioDataProvider.fillShorts(p.cursor, buffer, offset, result,
                                         p.sampleRate, p.channelCount, posMs);
                             } else if (isReplaceMode()) {
-                                AudioDataProvider.fillShorts(buffer, offset, result,
-                                        p.sampleRate, p.channelCount);
+                                AudioDataProvider.fillShorts(p.cursor, buffer, offset, result,
+                                        p.sampleRate, p.channelCount, AudioDataProvider.LOOP);
                             } else {
                                 Arrays.fill(buffer, offset, offset + result, (short) 0);
                             }
@@ -539,13 +547,13 @@ public class MicrophoneHandler implements ICameraHandler {
                             if (isVideoSyncMode()) {
                                 long posMs = getVideoPlaybackPositionMs();
                                 buffer.position(pos - result);
-                                AudioDataProvider.fillByteBufferAtPosition(buffer, result,
+                                AudioDataProvider.fillByteBuffer(p.cursor, buffer, result,
                                         p.sampleRate, p.channelCount, posMs);
                                 buffer.position(pos);
                             } else if (isReplaceMode()) {
                                 buffer.position(pos - result);
-                                AudioDataProvider.fillByteBuffer(buffer, result,
-                                        p.sampleRate, p.channelCount);
+                                AudioDataProvider.fillByteBuffer(p.cursor, buffer, result,
+                                        p.sampleRate, p.channelCount, AudioDataProvider.LOOP);
                                 buffer.position(pos);
                             } else {
                                 byte[] zeros = new byte[result];
@@ -584,11 +592,11 @@ public class MicrophoneHandler implements ICameraHandler {
 
                                 if (isVideoSyncMode()) {
                                     long posMs = getVideoPlaybackPositionMs();
-                                    AudioDataProvider.fillFloatsAtPosition(buffer, offset, result,
+                                    AudioDataProvider.fillFloats(p.cursor, buffer, offset, result,
                                             p.sampleRate, p.channelCount, posMs);
                                 } else if (isReplaceMode()) {
-                                    AudioDataProvider.fillFloats(buffer, offset, result,
-                                            p.sampleRate, p.channelCount);
+                                    AudioDataProvider.fillFloats(p.cursor, buffer, offset, result,
+                                            p.sampleRate, p.channelCount, AudioDataProvider.LOOP);
                                 } else {
                                     Arrays.fill(buffer, offset, offset + result, 0.0f);
                                 }
@@ -625,13 +633,13 @@ public class MicrophoneHandler implements ICameraHandler {
                                 if (isVideoSyncMode()) {
                                     long posMs = getVideoPlaybackPositionMs();
                                     buffer.position(pos - result);
-                                    AudioDataProvider.fillByteBufferAtPosition(buffer, result,
+                                    AudioDataProvider.fillByteBuffer(p.cursor, buffer, result,
                                             p.sampleRate, p.channelCount, posMs);
                                     buffer.position(pos);
                                 } else if (isReplaceMode()) {
                                     buffer.position(pos - result);
-                                    AudioDataProvider.fillByteBuffer(buffer, result,
-                                            p.sampleRate, p.channelCount);
+                                    AudioDataProvider.fillByteBuffer(p.cursor, buffer, result,
+                                            p.sampleRate, p.channelCount, AudioDataProvider.LOOP);
                                     buffer.position(pos);
                                 } else {
                                     byte[] zeros = new byte[result];
@@ -2,6 +2,10 @@ package com.example.camswap;
 
 import com.example.camswap.utils.AudioDataProvider;
 import com.example.camswap.utils.LogUtil;
+import com.example.camswap.utils.PlaybackCursor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Native 音频 Hook 桥接类。
@@ -9,14 +13,19 @@ import com.example.camswap.utils.LogUtil;
  * 加载 {@code libcamswap-native-hook.so}，通过 Dobby 内联 Hook 拦截
  * OpenSL ES 和 AAudio 的原生录音函数，将录音缓冲区替换为假 PCM 数据。
  * <p>
- * Native 代码通过 JNI 回调 {@link #fillNativeBuffer(byte[], int, int, int)}
+ * Native 代码通过 JNI 回调 {@link #fillNativeBuffer(long, byte[], int, int, int)}
  * 获取替换数据，复用 {@link MicrophoneHandler} 的模式判断逻辑和
  * {@link AudioDataProvider} 的 PCM 数据。
+ * <p>
+ * 每个 native 录音流（AAudioStream / OpenSL 录音 buffer queue 的指针）对应一个独立的
+ * {@link PlaybackCursor}，流关闭时 native 侧回调 {@link #releaseNativeStream(long)} 清理。
  */
 public class NativeAudioHook {
 
     private static final String TAG = "【CS】[NativeHook]";
 
+    private static final Map<Long, PlaybackCursor> streamCursors = new ConcurrentHashMap<>();
+
     private static native boolean nativeInit();
     private static native void nativeRelease();
 
@@ -41,17 +50,37 @@ public class NativeAudioHook {
         }
     }
 
+    private static PlaybackCursor cursorFor(long streamId) {
+        PlaybackCursor cursor = streamCursors.get(streamId);
+        if (cursor == null) {
+            PlaybackCursor created = new PlaybackCursor();
+            cursor = streamCursors.putIfAbsent(streamId, created);
+            if (cursor == null) {
+                cursor = created;
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Native 录音流关闭时回调，丢弃该流的播放游标。
+     */
+    public static void releaseNativeStream(long streamId) {
+        streamCursors.remove(streamId);
+    }
+
     /**
      * Native 代码回调此方法获取假 PCM 数据。
      * 复用 MicrophoneHandler 的模式判断逻辑。
      *
+     * @param streamId   native 录音流标识（流对象指针）
      * @param buffer     目标缓冲区（PCM 16-bit 小端序）
      * @param size       缓冲区大小（字节）
      * @param sampleRate 采样率 (Hz)
      * @param channels   声道数
      * @return 填充的字节数，-1 表示 hook 未启用（不替换，保留原始录音）
      */
-    public static int fillNativeBuffer(byte[] buffer, int size, int sampleRate, int channels) {
+    public static int fillNativeBuffer(long streamId, byte[] buffer, int size, int sampleRate, int channels) {
         try {
             // 检查开关
             if (!MicrophoneHandler.isMicHookEnabledStatic()) {
@@ -71,7 +100,7 @@ public class NativeAudioHook {
                     return size;
                 }
 
-                AudioDataProvider.fillBytesAtPosition(buffer, 0, size, sampleRate, channels, posMs);
+                AudioDataProvider.fillBytes(cursorFor(streamId), buffer, 0, size, sampleRate, channels, posMs);
                 return size;
 
             } else if (ConfigManager.MIC_MODE_REPLACE.equals(mode)) {
@@ -82,7 +111,8 @@ public class NativeAudioHook {
                     return size;
                 }
 
-                AudioDataProvider.fillBytes(buffer, 0, size, sampleRate, channels);
+                AudioDataProvider.fillBytes(cursorFor(streamId), buffer, 0, size, sampleRate, channels,
+                        AudioDataProvider.LOOP);
                 return size;
 
             } else {
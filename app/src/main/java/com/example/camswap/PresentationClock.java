@@ -0,0 +1,134 @@
+package com.example.camswap;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 解码帧的展示时钟。
+ * <p>
+ * 以 System.nanoTime() 为基准，把每一帧的 pts 映射到一条跨循环连续的时间线上：
+ * 每轮循环从上一轮最后一帧之后一个帧间隔处接着走，循环边界不会重新对齐、不会累积漂移。
+ * <ul>
+ * <li>hold-early：帧早于展示时间时等待到点再交付；关闭时立即交付（自由运行）。</li>
+ * <li>drop-late：帧晚于展示时间超过阈值时告知调用方丢弃，调用方不必再转换该帧。</li>
+ * </ul>
+ * 设置最高帧率后，与上一交付帧间隔不足一个输出帧周期的帧同样被丢弃（源帧率高于消费者时降采样）。
+ * 长时间停顿（超过 {@link #RESYNC_NS}）后重新对齐起点，而不是把之后的帧全部判为迟到。
+ * 实例只在解码线程使用，{@link #cancel()} 可从任意线程调用。
+ */
+public final class PresentationClock {
+    public static final long RESYNC_NS = 1_000_000_000L;
+    private static final long MAX_PARK_NS = 20_000_000L;
+    private static final long DEFAULT_FRAME_US = 33_333;
+
+    private final boolean holdEarly;
+    private final long dropLateNs;
+    private volatile long minIntervalUs;
+    private volatile boolean cancelled;
+
+    private boolean started;
+    private long originNs;
+    private long loopOffsetUs;
+    private boolean passStarted;
+    private long passFirstPtsUs;
+    private long lastTimelineUs = -1;
+    private long nextDueUs = Long.MIN_VALUE;
+    private long frameDurationUs = DEFAULT_FRAME_US;
+    private long droppedFrames;
+
+    /**
+     * @param holdEarly  早到的帧是否等待到展示时间
+     * @param dropLateMs 迟到超过该毫秒数的帧被丢弃，小于 0 表示从不丢帧
+     */
+    public PresentationClock(boolean holdEarly, long dropLateMs) {
+        this.holdEarly = holdEarly;
+        this.dropLateNs = dropLateMs < 0 ? -1 : dropLateMs * 1_000_000L;
+    }
+
+    /**
+     * 限制交付帧率（例如宿主 Camera1 的 getPreviewFrameRate()），fps <= 0 表示不限制。
+     */
+    public void setMaxFrameRate(int fps) {
+        minIntervalUs = fps > 0 ? 1_000_000L / fps : 0;
+    }
+
+    /**
+     * 开始新一轮（首轮或循环回到开头），时间线接着上一轮继续。
+     */
+    public void beginPass() {
+        if (lastTimelineUs >= 0) {
+            loopOffsetUs = lastTimelineUs + frameDurationUs;
+        }
+        passStarted = false;
+    }
+
+    /**
+     * 等待 ptsUs 对应的展示时间。
+     *
+     * @return true 表示应交付该帧；false 表示该帧已迟到，应直接丢弃
+     */
+    public boolean await(long ptsUs) {
+        if (!passStarted) {
+            passFirstPtsUs = ptsUs;
+            passStarted = true;
+        }
+        long timelineUs = loopOffsetUs + (ptsUs - passFirstPtsUs);
+        if (lastTimelineUs >= 0) {
+            long delta = timelineUs - lastTimelineUs;
+            if (delta > 0 && delta < 1_000_000L) {
+                frameDurationUs = (frameDurationUs * 7 + delta) / 8;
+            }
+        }
+        lastTimelineUs = timelineUs;
+        // 按输出帧周期的网格取帧（留 1/8 周期余量，避免源与目标帧率相同时因 pts 抖动误丢）
+        long interval = minIntervalUs;
+        if (interval > 0 && nextDueUs != Long.MIN_VALUE && timelineUs < nextDueUs - interval / 8) {
+            droppedFrames++;
+            return false;
+        }
+
+        long now = System.nanoTime();
+        if (!started) {
+            originNs = now - timelineUs * 1000;
+            started = true;
+        }
+        long targetNs = originNs + timelineUs * 1000;
+        long lateNs = now - targetNs;
+        if (lateNs > RESYNC_NS) {
+            // 停顿（后台、调试、长时间 GC）后从当前帧重新起算
+            originNs = now - timelineUs * 1000;
+            advanceDue(timelineUs, interval);
+            return true;
+        }
+        if (dropLateNs >= 0 && lateNs > dropLateNs) {
+            droppedFrames++;
+            return false;
+        }
+        advanceDue(timelineUs, interval);
+        if (holdEarly) {
+            long remaining;
+            while (!cancelled && (remaining = targetNs - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(Math.min(remaining, MAX_PARK_NS));
+            }
+        }
+        return true;
+    }
+
+    private void advanceDue(long timelineUs, long interval) {
+        if (nextDueUs == Long.MIN_VALUE || timelineUs - nextDueUs > interval) {
+            nextDueUs = timelineUs + interval;
+        } else {
+            nextDueUs += interval;
+        }
+    }
+
+    /**
+     * 停止等待，之后的 await 立即返回。
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.camswap;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ImageFormat;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.media.Image;
+import android.media.ImageWriter;
+import android.view.Surface;
+
+import com.example.camswap.frame.FrameFormat;
+import com.example.camswap.frame.Nv21Converter;
+import com.example.camswap.frame.Nv21ToArgb;
+import com.example.camswap.frame.YuvView;
+import com.example.camswap.utils.LogUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 把 CPU 路径产生的 NV21 帧送到 Camera2 reader Surface。
+ * <p>
+ * 目标 Surface 接受 YUV_420_888 时用 ImageWriter 直接按平面写入（尺寸不同时先缩放到 Image 尺寸）；
+ * 否则查表转换为 ARGB 写入复用的 Bitmap，再用 Canvas 绘制。两条路径都没有 JPEG 编解码，
+ * 除首帧外没有每帧分配。实例绑定一个 Surface，仅在解码线程使用。
+ * <p>
+ * 直接内存帧（{@link #write(ByteBuffer, int, int)}）尺寸一致时从直接缓冲区逐行批量写入 Image 平面，不经过 Java 堆。
+ */
+public class SurfaceFrameWriter {
+    private final Surface surface;
+    private final Nv21Converter scaler = new Nv21Converter();
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect destRect = new Rect();
+
+    private ImageWriter imageWriter;
+    private boolean writerChecked;
+    private byte[] scaled;
+    private byte[] heapFrame;
+    private final YuvView bufferView = new YuvView();
+
+    private Bitmap bitmap;
+    private int[] argb;
+
+    public SurfaceFrameWriter(Surface surface) {
+        this.surface = surface;
+    }
+
+    public Surface getSurface() {
+        return surface;
+    }
+
+    public void write(byte[] nv21, int width, int height) {
+        if (!writerChecked) {
+            writerChecked = true;
+            openImageWriter();
+        }
+        if (imageWriter != null) {
+            writeImage(nv21, width, height);
+        } else {
+            drawBitmap(nv21, width, height);
+        }
+    }
+
+    /**
+     * 写入直接内存中的 NV21 帧（从 position 0 起），不改变 nv21 的 position / limit。
+     */
+    public void write(ByteBuffer nv21, int width, int height) {
+        if (!writerChecked) {
+            writerChecked = true;
+            openImageWriter();
+        }
+        if (imageWriter != null) {
+            writeImage(nv21, width, height);
+            return;
+        }
+        // Bitmap 路径查表需要数组
+        int length = width * height * 3 / 2;
+        if (heapFrame == null || heapFrame.length < length) {
+            heapFrame = new byte[length];
+        }
+        ByteBuffer src = nv21.duplicate();
+        src.clear();
+        src.get(heapFrame, 0, length);
+        drawBitmap(heapFrame, width, height);
+    }
+
+    private void openImageWriter() {
+        try {
+            ImageWriter writer = ImageWriter.newInstance(surface, 2);
+            if (writer.getFormat() == ImageFormat.YUV_420_888) {
+                imageWriter = writer;
+                LogUtil.log("【CS】【Surface】使用 ImageWriter 直接写入 YUV_420_888");
+                return;
+            }
+            LogUtil.log("【CS】【Surface】Surface 格式 " + writer.getFormat() + "，使用 Bitmap 绘制");
+            writer.close();
+        } catch (Exception e) {
+            LogUtil.log("【CS】【Surface】ImageWriter 不可用，使用 Bitmap 绘制: " + e);
+        }
+    }
+
+    private void writeImage(byte[] nv21, int width, int height) {
+        Image image = imageWriter.dequeueInputImage();
+        try {
+            int imageW = image.getWidth();
+            int imageH = image.getHeight();
+            byte[] src = nv21;
+            if (imageW != width || imageH != height) {
+                int length = imageW * imageH * 3 / 2;
+                if (scaled == null || scaled.length != length) {
+                    scaled = new byte[length];
+                }
+                scaler.convert(nv21, width, height, 0, scaled, imageW, imageH);
+                src = scaled;
+            }
+            copyToPlanes(src, imageW, imageH, image.getPlanes());
+            imageWriter.queueInputImage(image);
+            image = null;
+        } finally {
+            if (image != null) {
+                image.close();
+            }
+        }
+    }
+
+    private void writeImage(ByteBuffer nv21, int width, int height) {
+        Image image = imageWriter.dequeueInputImage();
+        try {
+            int imageW = image.getWidth();
+            int imageH = image.getHeight();
+            if (imageW != width || imageH != height) {
+                int length = imageW * imageH * 3 / 2;
+                if (scaled == null || scaled.length != length) {
+                    scaled = new byte[length];
+                }
+                YuvView src = FrameFormat.NV21.view(nv21, width, height, bufferView);
+                scaler.convert(src, 0, scaled, imageW, imageH);
+                copyToPlanes(scaled, imageW, imageH, image.getPlanes());
+            } else {
+                copyToPlanes(nv21, width, height, image.getPlanes());
+            }
+            imageWriter.queueInputImage(image);
+            image = null;
+        } finally {
+            if (image != null) {
+                image.close();
+            }
+        }
+    }
+
+    private static void copyToPlanes(byte[] nv21, int width, int height, Image.Plane[] planes) {
+        ByteBuffer y = planes[0].getBuffer();
+        int yRowStride = planes[0].getRowStride();
+        for (int row = 0; row < height; row++) {
+            y.position(row * yRowStride);
+            y.put(nv21, row * width, width);
+        }
+
+        ByteBuffer u = planes[1].getBuffer();
+        ByteBuffer v = planes[2].getBuffer();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+        int frameSize = width * height;
+        int chromaW = width / 2;
+        for (int row = 0; row < height / 2; row++) {
+            int in = frameSize + row * width;
+            int out = row * uvRowStride;
+            for (int col = 0; col < chromaW; col++, out += uvPixelStride) {
+                v.put(out, nv21[in + col * 2]);
+                u.put(out, nv21[in + col * 2 + 1]);
+            }
+        }
+    }
+
+    private static void copyToPlanes(ByteBuffer nv21, int width, int height, Image.Plane[] planes) {
+        ByteBuffer src = nv21.duplicate();
+        ByteBuffer y = planes[0].getBuffer();
+        int yRowStride = planes[0].getRowStride();
+        for (int row = 0; row < height; row++) {
+            src.limit(row * width + width);
+            src.position(row * width);
+            y.position(row * yRowStride);
+            y.put(src);
+        }
+
+        ByteBuffer u = planes[1].getBuffer();
+        ByteBuffer v = planes[2].getBuffer();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+        int frameSize = width * height;
+        int chromaW = width / 2;
+        for (int row = 0; row < height / 2; row++) {
+            int in = frameSize + row * width;
+            int out = row * uvRowStride;
+            for (int col = 0; col < chromaW; col++, out += uvPixelStride) {
+                v.put(out, nv21.get(in + col * 2));
+                u.put(out, nv21.get(in + col * 2 + 1));
+            }
+        }
+    }
+
+    private void drawBitmap(byte[] nv21, int width, int height) {
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            argb = new int[width * height];
+        }
+        Nv21ToArgb.convert(nv21, width, height, argb);
+        bitmap.setPixels(argb, 0, width, 0, 0, width, height);
+
+        Canvas canvas = surface.lockCanvas(null);
+        if (canvas != null) {
+            // 缩放 bitmap 以填充 canvas
+            destRect.set(0, 0, canvas.getWidth(), canvas.getHeight());
+            canvas.drawBitmap(bitmap, null, destRect, paint);
+            surface.unlockCanvasAndPost(canvas);
+        }
+    }
+
+    public void release() {
+        if (imageWriter != null) {
+            imageWriter.close();
+            imageWriter = null;
+        }
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+        argb = null;
+        scaled = null;
+        heapFrame = null;
+        scaler.release();
+    }
+}
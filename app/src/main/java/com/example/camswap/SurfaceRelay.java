@@ -29,6 +29,8 @@ import java.util.concurrent.TimeUnit;
  */
 public class SurfaceRelay implements SurfaceTexture.OnFrameAvailableListener {
     private static final String TAG = "SurfaceRelay";
+    private static final Metrics.Counter drawnFrames = Metrics.counter("relay.frames");
+    private static final Metrics.Histogram drawUs = Metrics.histogram("relay.draw_us");
 
     // EGL
     private EGLDisplay mEGLDisplay = EGL14.EGL_NO_DISPLAY;
@@ -126,6 +128,7 @@ public class SurfaceRelay implements SurfaceTexture.OnFrameAvailableListener {
     private void drawFrame() {
         if (mReleased || !mInitialized)
             return;
+        long start = System.nanoTime();
         try {
             if (!EGL14.eglMakeCurrent(mEGLDisplay,
                     mEGLWindowSurface != EGL14.EGL_NO_SURFACE ? mEGLWindowSurface : mEGLPbufferSurface,
@@ -185,6 +188,8 @@ public class SurfaceRelay implements SurfaceTexture.OnFrameAvailableListener {
             if (mEGLWindowSurface != EGL14.EGL_NO_SURFACE) {
                 EGL14.eglSwapBuffers(mEGLDisplay, mEGLWindowSurface);
             }
+            drawUs.recordSinceNs(start);
+            drawnFrames.inc();
         } catch (Exception e) {
             LogUtil.log("【CS】【Relay】" + mTag + " drawFrame 异常: " + e);
         }
@@ -12,8 +12,10 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
+import com.example.camswap.utils.PcmCache;
 import com.example.camswap.utils.VideoManager;
 
 public class VideoProvider extends ContentProvider {
@@ -21,10 +23,16 @@ public class VideoProvider extends ContentProvider {
     public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY);
     public static final String PATH_VIDEO = "video";
     public static final String PATH_CONFIG = "config";
+    /** pcm/{媒体文件名} 或 pcm（当前视频的音轨）：返回解码好的 PCM 缓存文件，见 {@link PcmCache} */
+    public static final String PATH_PCM = "pcm";
     public static final Uri URI_CONFIG = Uri.withAppendedPath(CONTENT_URI, PATH_CONFIG);
     public static final String METHOD_NEXT = "next";
     public static final String METHOD_PREV = "prev";
     public static final String METHOD_RANDOM = "random";
+    /** 被 Hook 进程带 extras["snapshot"] 上报指标；不带时返回各包最近一次的指标 JSON（键为包名） */
+    public static final String METHOD_METRICS = "metrics";
+    private static final String METRICS_DIR = "metrics";
+    private static final int MAX_METRICS_BYTES = 256 * 1024;
 
     private ConfigManager configManager;
 
@@ -116,6 +124,11 @@ public class VideoProvider extends ContentProvider {
     public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
         configManager.reload();
 
+        List<String> segments = uri.getPathSegments();
+        if (!segments.isEmpty() && PATH_PCM.equals(segments.get(0))) {
+            return openPcm(segments);
+        }
+
         // Try to start service if enabled (Lazy load when video is accessed)
         if (configManager.getBoolean("notification_control_enabled", false)) {
             try {
@@ -135,7 +148,51 @@ public class VideoProvider extends ContentProvider {
 
         // Random play is handled ONLY via call("random"), not on every openFile access.
         // This prevents the video from constantly switching during playback.
+        File videoFile = resolveVideoFile();
+
+        Log.d("VideoProvider", "openFile: opening " + videoFile.getAbsolutePath()
+                + " size=" + videoFile.length()
+                + " canRead=" + videoFile.canRead());
+        try {
+            ParcelFileDescriptor pfd = ParcelFileDescriptor.open(videoFile, ParcelFileDescriptor.MODE_READ_ONLY);
+            Log.d("VideoProvider", "openFile: PFD opened successfully");
+            return pfd;
+        } catch (Exception e) {
+            Log.e("VideoProvider", "openFile: PFD open FAILED: " + e.getMessage());
+            throw new FileNotFoundException(
+                    "Cannot open video file: " + videoFile.getAbsolutePath() + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * 以只读 fd 返回已生成的 PCM 缓存。还没有缓存时提交后台生成并立即失败，
+     * 不在 binder 线程上解码（调用方这次自己解码或流式播放）。
+     */
+    private ParcelFileDescriptor openPcm(List<String> segments) throws FileNotFoundException {
+        File source;
+        if (segments.size() > 1) {
+            String name = segments.get(1);
+            // 只允许媒体目录下的文件
+            if (name.contains("/") || name.startsWith(".")) {
+                throw new FileNotFoundException("Invalid audio name: " + name);
+            }
+            source = new File(ConfigManager.DEFAULT_CONFIG_DIR, name);
+        } else {
+            source = resolveVideoFile();
+        }
+        File cacheRoot = getContext().getCacheDir();
+        File cache = PcmCache.existing(cacheRoot, source);
+        if (cache == null) {
+            PcmCache.prepareAsync(cacheRoot, source);
+            throw new FileNotFoundException("PCM cache not ready for " + source.getAbsolutePath());
+        }
+        return ParcelFileDescriptor.open(cache, ParcelFileDescriptor.MODE_READ_ONLY);
+    }
 
+    /**
+     * 当前选中的视频：选中项 → Cam.mp4 → 目录中任意 mp4。
+     */
+    private File resolveVideoFile() throws FileNotFoundException {
         // 1. Try to get the selected video name
         String videoName = configManager.getString(ConfigManager.KEY_SELECTED_VIDEO, null);
 
@@ -170,23 +227,14 @@ public class VideoProvider extends ContentProvider {
             Log.e("VideoProvider", "No video file found in " + videoDir.getAbsolutePath());
             throw new FileNotFoundException("No video file found in " + videoDir.getAbsolutePath());
         }
-
-        Log.d("VideoProvider", "openFile: opening " + videoFile.getAbsolutePath()
-                + " size=" + videoFile.length()
-                + " canRead=" + videoFile.canRead());
-        try {
-            ParcelFileDescriptor pfd = ParcelFileDescriptor.open(videoFile, ParcelFileDescriptor.MODE_READ_ONLY);
-            Log.d("VideoProvider", "openFile: PFD opened successfully");
-            return pfd;
-        } catch (Exception e) {
-            Log.e("VideoProvider", "openFile: PFD open FAILED: " + e.getMessage());
-            throw new FileNotFoundException(
-                    "Cannot open video file: " + videoFile.getAbsolutePath() + " - " + e.getMessage());
-        }
+        return videoFile;
     }
 
     @Override
     public Bundle call(String method, String arg, Bundle extras) {
+        if (METHOD_METRICS.equals(method)) {
+            return callMetrics(arg, extras);
+        }
         configManager.reload();
         boolean changed = false;
 
@@ -214,6 +262,42 @@ public class VideoProvider extends ContentProvider {
         return result;
     }
 
+    private Bundle callMetrics(String pkg, Bundle extras) {
+        Bundle result = new Bundle();
+        File dir = new File(getContext().getFilesDir(), METRICS_DIR);
+        String snapshot = extras != null ? extras.getString(MetricsReporter.EXTRA_SNAPSHOT) : null;
+        if (snapshot != null) {
+            // 以 Binder 调用方包名为文件名，调用方无法写到别的位置
+            String caller = getCallingPackage();
+            if (caller == null || snapshot.length() > MAX_METRICS_BYTES || (!dir.isDirectory() && !dir.mkdirs())) {
+                return result;
+            }
+            try (java.io.FileOutputStream out = new java.io.FileOutputStream(new File(dir, caller + ".json"))) {
+                out.write(snapshot.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            } catch (java.io.IOException e) {
+                Log.w("VideoProvider", "write metrics failed: " + e.getMessage());
+            }
+            return result;
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return result;
+        }
+        for (File f : files) {
+            String name = f.getName().substring(0, f.getName().length() - ".json".length());
+            if (pkg != null && !pkg.equals(name)) {
+                continue;
+            }
+            try {
+                byte[] data = java.nio.file.Files.readAllBytes(f.toPath());
+                result.putString(name, new String(data, java.nio.charset.StandardCharsets.UTF_8));
+            } catch (java.io.IOException e) {
+                Log.w("VideoProvider", "read metrics failed: " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
     private boolean switchVideo(boolean next) {
         if (configManager.getBoolean(ConfigManager.KEY_ENABLE_RANDOM_PLAY, false)) {
             return pickRandomVideo();
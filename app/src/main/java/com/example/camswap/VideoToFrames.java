@@ -9,35 +9,145 @@ import android.media.MediaCodecInfo;
 import android.media.MediaExtractor;
 import android.media.MediaFormat;
 import android.media.MediaMetadataRetriever;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.util.Log;
 import android.view.Surface;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import de.robv.android.xposed.XposedBridge;
+import com.example.camswap.frame.ConversionPlan;
+import com.example.camswap.frame.DirectBufferPool;
+import com.example.camswap.frame.Nv21Converter;
+import com.example.camswap.frame.StripExecutor;
+import com.example.camswap.frame.YuvView;
 import com.example.camswap.utils.LogUtil;
 
 public class VideoToFrames implements Runnable {
     private static final String TAG = "VideoToFrames";
-    private static final long DEFAULT_TIMEOUT_US = 10000;
 
-    private static final int COLOR_FormatI420 = 1;
-    private static final int COLOR_FormatNV21 = 2;
+    private static final Metrics.Counter decodedCount = Metrics.counter("decode.frames");
+    private static final Metrics.Histogram pendingFrames = Metrics.histogram("decode.pending_frames");
+    private static final Metrics.Counter lateFrames = Metrics.counter("decode.late_dropped");
+    private static final Metrics.Counter idleFrames = Metrics.counter("decode.idle_skipped");
+    private static final Metrics.Counter replayedFrames = Metrics.counter("cache.replayed");
+    private static final Metrics.Histogram convertUs = Metrics.histogram("convert_us");
 
     private final int decodeColorFormat = MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible;
+    private final Nv21Converter converter = new Nv21Converter();
+    private final YuvView imageView = new YuvView();
 
     private LinkedBlockingQueue<byte[]> mQueue;
     private OutputImageFormat outputImageFormat;
     private volatile boolean stopDecode = false;
+    private volatile PresentationClock clock;
     private int mVideoRotation = 0;
 
     private String videoFilePath;
     private Throwable throwable;
     private Thread childThread;
     private Surface play_surf;
+    private GLFrameConverter glConverter;
+    private SurfaceFrameWriter surfaceWriter;
+
+    // 已解码帧缓存：sourceKey 标识当前视频源，为 null 时不缓存
+    private String sourceKey;
+    private FrameCache frameCache;
+    private FrameCache.Writer cacheWriter;
+    // 录制失败或被放弃的缓存键：之后的循环不再重新录制（重写临时文件、按预算淘汰其他缓存），也不再查找
+    private final Set<String> uncacheableKeys = new HashSet<>();
+
+    // 当前转换方案：旋转偏移 / 目标尺寸 / 源尺寸变化时才重建，解码循环每帧只读引用
+    private volatile int rotationOffset;
+    private volatile ConversionPlan plan;
+    // 本会话帧是否走直接内存（KEY_DIRECT_FRAMES，旧队列模式下关闭）
+    private boolean directFrames;
+
+    // 解码器当前配置：同一输出 Surface 的循环只 flush 不重新 configure
+    private boolean decoderConfigured;
+    private Surface configuredSurface;
+
+    // 异步解码：回调线程喂输入、把输出帧放入有界交接队列，解码线程取出后转换
+    private static final int DECODED_QUEUE_CAPACITY = 16;
+    private final ArrayBlockingQueue<DecodedFrame> decodedFrames = new ArrayBlockingQueue<>(DECODED_QUEUE_CAPACITY);
+    private final CodecCallback codecCallback = new CodecCallback();
+    private HandlerThread codecThread;
+    private Handler codecHandler;
+    private volatile MediaExtractor codecExtractor;
+    private volatile boolean inputDone;
+    private volatile boolean outputEosDropped;
+    private volatile Exception codecError;
+
+    private static final class DecodedFrame {
+        final int index;
+        final int size;
+        final int flags;
+        final long ptsUs;
+
+        DecodedFrame(int index, MediaCodec.BufferInfo info) {
+            this.index = index;
+            this.size = info.size;
+            this.flags = info.flags;
+            this.ptsUs = info.presentationTimeUs;
+        }
+    }
+
+    private final class CodecCallback extends MediaCodec.Callback {
+        @Override
+        public void onInputBufferAvailable(MediaCodec codec, int index) {
+            MediaExtractor extractor = codecExtractor;
+            if (inputDone || extractor == null) {
+                return;
+            }
+            try {
+                ByteBuffer inputBuffer = codec.getInputBuffer(index);
+                int sampleSize = extractor.readSampleData(inputBuffer, 0);
+                if (sampleSize < 0) {
+                    codec.queueInputBuffer(index, 0, 0, 0L, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                    inputDone = true;
+                } else {
+                    codec.queueInputBuffer(index, 0, sampleSize, extractor.getSampleTime(), 0);
+                    extractor.advance();
+                }
+            } catch (IllegalStateException e) {
+                // 解码器已被 flush / stop，本次回调的缓冲区作废
+            }
+        }
+
+        @Override
+        public void onOutputBufferAvailable(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+            if (decodedFrames.offer(new DecodedFrame(index, info))) {
+                return;
+            }
+            // 队列满（消费端严重落后）：直接丢弃该帧，EOS 需要告知消费端
+            try {
+                codec.releaseOutputBuffer(index, false);
+            } catch (IllegalStateException ignored) {
+            }
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                outputEosDropped = true;
+            }
+        }
+
+        @Override
+        public void onError(MediaCodec codec, MediaCodec.CodecException e) {
+            codecError = e;
+        }
+
+        @Override
+        public void onOutputFormatChanged(MediaCodec codec, MediaFormat format) {
+            LogUtil.log("【CS】【decoder】输出格式变化: " + format);
+        }
+    }
 
     private Callback callback;
 
@@ -53,6 +163,9 @@ public class VideoToFrames implements Runnable {
 
     public void setEnqueue(LinkedBlockingQueue<byte[]> queue) {
         mQueue = queue;
+        if (queue != null) {
+            Metrics.gauge("decode.queue_depth", queue::size);
+        }
     }
 
     // 设置输出位置，没啥用
@@ -69,6 +182,10 @@ public class VideoToFrames implements Runnable {
 
     public void stopDecode() {
         stopDecode = true;
+        PresentationClock c = clock;
+        if (c != null) {
+            c.cancel();
+        }
         if (childThread != null) {
             try {
                 childThread.join(500);
@@ -80,6 +197,7 @@ public class VideoToFrames implements Runnable {
 
     public void reset(String videoFilePath) throws Throwable {
         stopDecode();
+        awaitDecodeThread();
         stopDecode = false;
         this.videoFd = null;
         this.videoPfd = null;
@@ -90,6 +208,7 @@ public class VideoToFrames implements Runnable {
 
     public void reset(android.os.ParcelFileDescriptor pfd) throws Throwable {
         stopDecode();
+        awaitDecodeThread();
         stopDecode = false;
         this.videoFilePath = null;
         this.videoPfd = pfd;
@@ -98,6 +217,23 @@ public class VideoToFrames implements Runnable {
         decode(pfd);
     }
 
+    /**
+     * 等旧的解码线程完全退出：它的 finally 会释放本实例上的解码器、回调线程、交接队列和 pfd，
+     * 新一轮必须在此之后才能开始使用这些状态。
+     */
+    private void awaitDecodeThread() {
+        Thread old = childThread;
+        if (old == null || old == Thread.currentThread()) {
+            return;
+        }
+        try {
+            old.join();
+        } catch (InterruptedException e) {
+            LogUtil.log("【CS】【decoder】等待解码线程退出被中断");
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void decode(String videoFilePath) throws Throwable {
         this.videoFilePath = videoFilePath;
         if (childThread == null) {
@@ -167,8 +303,22 @@ public class VideoToFrames implements Runnable {
                 e.printStackTrace();
             }
         }
+        sourceKey = null;
+        try {
+            android.system.StructStat st = android.system.Os.fstat(fd);
+            sourceKey = "fd:" + st.st_dev + ":" + st.st_ino + "|" + st.st_size + "|" + st.st_mtime;
+        } catch (Exception e) {
+            LogUtil.log("【CS】【decoder】fstat 失败，不使用帧缓存: " + e);
+        }
+        clock = createClock();
+        rotationOffset = readRotationOffset();
+        plan = null;
+        setupDirectFrames();
         MediaExtractor extractor = null;
         MediaCodec decoder = null;
+        String mime = null;
+        int codecWidth = 0;
+        int codecHeight = 0;
         try {
             extractor = new MediaExtractor();
             extractor.setDataSource(fd);
@@ -179,8 +329,12 @@ public class VideoToFrames implements Runnable {
             }
             extractor.selectTrack(trackIndex);
             MediaFormat mediaFormat = extractor.getTrackFormat(trackIndex);
-            String mime = mediaFormat.getString(MediaFormat.KEY_MIME);
-            decoder = MediaCodec.createDecoderByType(mime);
+            mime = mediaFormat.getString(MediaFormat.KEY_MIME);
+            codecWidth = mediaFormat.getInteger(MediaFormat.KEY_WIDTH);
+            codecHeight = mediaFormat.getInteger(MediaFormat.KEY_HEIGHT);
+            // 同格式的视频复用池中的解码器，避免每次切换都重新实例化
+            decoder = CodecPool.acquire(mime, codecWidth, codecHeight);
+            decoderConfigured = false;
             showSupportedColorFormat(decoder.getCodecInfo().getCapabilitiesForType(mime));
             if (isColorFormatSupported(decodeColorFormat, decoder.getCodecInfo().getCapabilitiesForType(mime))) {
                 mediaFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT, decodeColorFormat);
@@ -190,30 +344,39 @@ public class VideoToFrames implements Runnable {
                 LogUtil.log("【CS】【decoder】unable to set decode color format, color format type " + decodeColorFormat
                         + " not supported");
             }
-            // 解码第一帧
-            decodeFramesToImage(decoder, extractor, mediaFormat);
-            decoder.stop();
+            // 解码第一帧（已有帧缓存时直接回放）
+            if (!replayFrameCache(decoder, mediaFormat)) {
+                decodeFramesToImage(decoder, extractor, mediaFormat);
+            }
             while (!stopDecode) {
+                // 短视频第一遍解码后从帧缓存回放，不再解码
+                if (replayFrameCache(decoder, mediaFormat)) {
+                    continue;
+                }
                 extractor.seekTo(0, 0);
-                // 解码后续帧
+                // 解码后续帧（解码器保持运行，flush 后继续）
                 decodeFramesToImage(decoder, extractor, mediaFormat);
-                decoder.stop();
             }
         } catch (Exception e) {
             LogUtil.log("【CS】【decoder】【videoFD】" + e.toString());
         } finally {
+            // 回调线程可能正在读提取器、写输入缓冲区，先停止喂输入并等它处理完，再释放解码器和提取器
+            stopCodecInput();
             if (decoder != null) {
-                try {
-                    decoder.stop();
-                } catch (IllegalStateException ignored) {
-                }
-                decoder.release();
+                CodecPool.release(mime, codecWidth, codecHeight, decoder);
                 decoder = null;
+                decoderConfigured = false;
+                configuredSurface = null;
             }
+            releaseCodecThread();
             if (extractor != null) {
                 extractor.release();
                 extractor = null;
             }
+            converter.release();
+            releaseGLConverter();
+            releaseSurfaceWriter();
+            abortFrameCache();
             if (videoPfd != null) {
                 try {
                     videoPfd.close();
@@ -245,10 +408,18 @@ public class VideoToFrames implements Runnable {
                 e.printStackTrace();
             }
         }
+        clock = createClock();
+        rotationOffset = readRotationOffset();
+        plan = null;
+        setupDirectFrames();
         MediaExtractor extractor = null;
         MediaCodec decoder = null;
+        String mime = null;
+        int codecWidth = 0;
+        int codecHeight = 0;
         try {
             File videoFile = new File(videoFilePath);
+            sourceKey = videoFile.getAbsolutePath() + "|" + videoFile.length() + "|" + videoFile.lastModified();
             extractor = new MediaExtractor();
             extractor.setDataSource(videoFilePath);
             int trackIndex = selectTrack(extractor);
@@ -258,8 +429,12 @@ public class VideoToFrames implements Runnable {
             }
             extractor.selectTrack(trackIndex);
             MediaFormat mediaFormat = extractor.getTrackFormat(trackIndex);
-            String mime = mediaFormat.getString(MediaFormat.KEY_MIME);
-            decoder = MediaCodec.createDecoderByType(mime);
+            mime = mediaFormat.getString(MediaFormat.KEY_MIME);
+            codecWidth = mediaFormat.getInteger(MediaFormat.KEY_WIDTH);
+            codecHeight = mediaFormat.getInteger(MediaFormat.KEY_HEIGHT);
+            // 同格式的视频复用池中的解码器，避免每次切换都重新实例化
+            decoder = CodecPool.acquire(mime, codecWidth, codecHeight);
+            decoderConfigured = false;
             showSupportedColorFormat(decoder.getCodecInfo().getCapabilitiesForType(mime));
             if (isColorFormatSupported(decodeColorFormat, decoder.getCodecInfo().getCapabilitiesForType(mime))) {
                 mediaFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT, decodeColorFormat);
@@ -269,29 +444,167 @@ public class VideoToFrames implements Runnable {
                 LogUtil.log("【CS】【decoder】unable to set decode color format, color format type " + decodeColorFormat
                         + " not supported");
             }
-            decodeFramesToImage(decoder, extractor, mediaFormat);
-            decoder.stop();
+            if (!replayFrameCache(decoder, mediaFormat)) {
+                decodeFramesToImage(decoder, extractor, mediaFormat);
+            }
             while (!stopDecode) {
+                if (replayFrameCache(decoder, mediaFormat)) {
+                    continue;
+                }
                 extractor.seekTo(0, 0);
                 decodeFramesToImage(decoder, extractor, mediaFormat);
-                decoder.stop();
             }
         } catch (Exception e) {
             LogUtil.log("【CS】【decoder】【videofile】" + e.toString());
         } finally {
+            // 回调线程可能正在读提取器、写输入缓冲区，先停止喂输入并等它处理完，再释放解码器和提取器
+            stopCodecInput();
             if (decoder != null) {
-                try {
-                    decoder.stop();
-                } catch (IllegalStateException ignored) {
-                }
-                decoder.release();
+                CodecPool.release(mime, codecWidth, codecHeight, decoder);
                 decoder = null;
+                decoderConfigured = false;
+                configuredSurface = null;
             }
+            releaseCodecThread();
             if (extractor != null) {
                 extractor.release();
                 extractor = null;
             }
+            converter.release();
+            releaseGLConverter();
+            releaseSurfaceWriter();
+            abortFrameCache();
+        }
+    }
+
+    private Handler codecHandler() {
+        if (codecHandler == null) {
+            codecThread = new HandlerThread("CS-CodecCallback");
+            codecThread.start();
+            codecHandler = new Handler(codecThread.getLooper());
+        }
+        return codecHandler;
+    }
+
+    private void releaseCodecThread() {
+        if (codecThread != null) {
+            codecThread.quitSafely();
+            try {
+                codecThread.join(500);
+            } catch (InterruptedException ignored) {
+            }
+            codecThread = null;
+            codecHandler = null;
+        }
+        codecExtractor = null;
+        decodedFrames.clear();
+    }
+
+    /**
+     * 等待回调线程处理完已投递的回调，之后才能安全地 flush / 复位本轮状态。
+     */
+    private void drainCodecCallbacks() {
+        if (codecHandler == null) {
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        codecHandler.post(latch::countDown);
+        try {
+            latch.await(500, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    /**
+     * 本轮没读到 EOS 就结束（解码器错误等）：回调线程可能还在读提取器，
+     * 先停止喂输入并等回调处理完，再 flush 解码器，调用方之后才能安全地 seek 提取器。
+     * 解码器出错时 flush 无效，reset 后由下一轮重新 configure。
+     */
+    private void endPassEarly(MediaCodec decoder) {
+        stopCodecInput();
+        try {
+            if (codecError == null) {
+                decoder.flush();
+                return;
+            }
+        } catch (IllegalStateException e) {
+            LogUtil.log("【CS】【decoder】flush 失败，重置解码器: " + e);
+        }
+        decoder.reset();
+        decoderConfigured = false;
+        configuredSurface = null;
+    }
+
+    /**
+     * 停止回调线程喂输入，并等待已投递的回调处理完，之后才能 seek / 释放提取器或解码器。
+     */
+    private void stopCodecInput() {
+        inputDone = true;
+        codecExtractor = null;
+        drainCodecCallbacks();
+    }
+
+    private void resetCodecPass() {
+        decodedFrames.clear();
+        inputDone = false;
+        outputEosDropped = false;
+        codecError = null;
+    }
+
+    private void releaseSurfaceWriter() {
+        if (surfaceWriter != null) {
+            surfaceWriter.release();
+            surfaceWriter = null;
+        }
+    }
+
+    /**
+     * play_surf 同一时刻只能连接一个生产者（解码器直出 / GPU 转换器 / ImageWriter），
+     * 改由其他生产者输出前，先让输出到 Surface 的解码器停下并断开，下一轮解码时重新 configure。
+     */
+    private void releaseDecoderSurface(MediaCodec decoder) {
+        if (decoderConfigured && configuredSurface != null) {
+            stopCodecInput();
+            decoder.stop();
+            decoderConfigured = false;
+            configuredSurface = null;
+        }
+    }
+
+    private void releaseGLConverter() {
+        if (glConverter != null) {
+            glConverter.release();
+            glConverter = null;
+        }
+    }
+
+    /**
+     * 内存解码模式下尝试创建 GPU 转换器；返回 null 时走 CPU 转换。
+     * 旧的 mQueue 消费者需要每帧同步拿到字节，不走 GPU。
+     */
+    private GLFrameConverter obtainGLConverter() {
+        if (mQueue != null) {
+            return null;
+        }
+        boolean enabled = true;
+        try {
+            enabled = HookMain.getConfig().getBoolean(ConfigManager.KEY_GPU_CONVERT, true);
+        } catch (Exception ignored) {
+        }
+        if (!enabled) {
+            releaseGLConverter();
+            return null;
+        }
+        if (glConverter == null) {
+            // 上一轮 CPU 转换 / 缓存回放留下的 ImageWriter 还连着 play_surf
+            releaseSurfaceWriter();
+            glConverter = GLFrameConverter.createSafely(play_surf,
+                    outputImageFormat != null ? HookMain.frameRing : null, "decoder");
+            if (glConverter == null) {
+                LogUtil.log("【CS】【decoder】GPU 转换不可用，使用 CPU 转换");
+            }
         }
+        return glConverter;
     }
 
     private void showSupportedColorFormat(MediaCodecInfo.CodecCapabilities caps) {
@@ -312,143 +625,200 @@ public class VideoToFrames implements Runnable {
     }
 
     private void decodeFramesToImage(MediaCodec decoder, MediaExtractor extractor, MediaFormat mediaFormat) {
-        boolean is_first = false;
-        long startWhen = 0;
-        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        clock.beginPass();
 
         // 计算初始旋转角度决定是否需要内存解码模式
-        int manualOffset = 0;
-        try {
-            manualOffset = HookMain.getConfig().getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
-        } catch (Exception ignored) {
+        final int width = mediaFormat.getInteger(MediaFormat.KEY_WIDTH);
+        final int height = mediaFormat.getInteger(MediaFormat.KEY_HEIGHT);
+        ConversionPlan initialPlan = currentPlan(width, height);
+        boolean needSoftDecode = needSoftDecode(initialPlan.rotation);
+        // play_surf 的生产者要换人时，先停下解码器当前的 Surface 输出
+        if (needSoftDecode ? configuredSurface == play_surf : configuredSurface != play_surf) {
+            releaseDecoderSurface(decoder);
+        }
+        if (!needSoftDecode && play_surf != null) {
+            // 解码器直接渲染到 play_surf，先断开转换器留下的连接
+            releaseGLConverter();
+            releaseSurfaceWriter();
+        }
+        // GPU 打包要求输出宽为 4 的倍数、高为偶数，不满足时帧环消费者只能走 CPU 转换
+        boolean gpuPackable = outputImageFormat == null || GLFrameConverter.canPack(initialPlan);
+        if (!gpuPackable && glConverter != null) {
+            LogUtil.log("【CS】【decoder】输出尺寸 " + initialPlan.outWidth + "x" + initialPlan.outHeight
+                    + " 无法 GPU 打包，改用 CPU 转换");
+            releaseGLConverter();
         }
-        int initialEffectiveRotation = (mVideoRotation + manualOffset + 360) % 360;
-        boolean needSoftDecode = (initialEffectiveRotation != 0) || outputImageFormat != null;
 
-        // 如果需要旋转或需要填充 data_buffer，则不配置 Surface（走内存解码）
-        Surface configSurface = needSoftDecode ? null : play_surf;
-        decoder.configure(mediaFormat, configSurface, null, 0);
+        // 短视频第一遍解码时录制帧缓存（需要 CPU 路径的字节），否则优先让解码器输出到
+        // GPU 转换器的 SurfaceTexture，由着色器做旋转/缩放
+        cacheWriter = needSoftDecode && glConverter == null ? startFrameCache(mediaFormat) : null;
+        GLFrameConverter gpu = needSoftDecode && cacheWriter == null && gpuPackable ? obtainGLConverter() : null;
+        if (gpu == null && needSoftDecode) {
+            int threads = 0;
+            try {
+                threads = HookMain.getConfig().getInt(ConfigManager.KEY_CONVERT_THREADS, 0);
+            } catch (Exception ignored) {
+            }
+            // 分条并行转换（4K 源缩放到 1080p 预览时单核跟不上实时）
+            converter.setParallelism(threads < 0 ? StripExecutor.defaultThreads() : threads);
+        }
 
-        boolean sawInputEOS = false;
+        // 如果需要旋转或需要填充 frameRing，则输出到 GPU 转换器，或不配置 Surface（走 CPU 内存解码）
+        Surface configSurface = gpu != null ? gpu.getInputSurface() : needSoftDecode ? null : play_surf;
+        codecExtractor = extractor;
+        if (decoderConfigured && configSurface == configuredSurface) {
+            // 循环播放：flush 丢弃残留缓冲，省去 stop/configure/start；异步模式下 flush 后需 start() 恢复回调
+            drainCodecCallbacks();
+            decoder.flush();
+            resetCodecPass();
+            decoder.start();
+        } else {
+            if (decoderConfigured) {
+                decoder.stop();
+            }
+            drainCodecCallbacks();
+            resetCodecPass();
+            decoder.setCallback(codecCallback, codecHandler());
+            decoder.configure(mediaFormat, configSurface, null, 0);
+            decoder.start();
+            decoderConfigured = true;
+            configuredSurface = configSurface;
+        }
+
+        // 输入由回调线程喂给解码器，本线程只消费交接队列中的输出帧（转换、定时、释放）
         boolean sawOutputEOS = false;
-        decoder.start();
-        final int width = mediaFormat.getInteger(MediaFormat.KEY_WIDTH);
-        final int height = mediaFormat.getInteger(MediaFormat.KEY_HEIGHT);
         int outputFrameCount = 0;
         while (!sawOutputEOS && !stopDecode) {
-            if (!sawInputEOS) {
-                int inputBufferId = decoder.dequeueInputBuffer(DEFAULT_TIMEOUT_US);
-                if (inputBufferId >= 0) {
-                    ByteBuffer inputBuffer = decoder.getInputBuffer(inputBufferId);
-                    int sampleSize = extractor.readSampleData(inputBuffer, 0);
-                    if (sampleSize < 0) {
-                        decoder.queueInputBuffer(inputBufferId, 0, 0, 0L, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                        sawInputEOS = true;
-                    } else {
-                        long presentationTimeUs = extractor.getSampleTime();
-                        decoder.queueInputBuffer(inputBufferId, 0, sampleSize, presentationTimeUs, 0);
-                        extractor.advance();
-                    }
+            DecodedFrame frame;
+            try {
+                frame = decodedFrames.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            // 交接队列里积压的输出帧：持续偏高说明转换 / 交付跟不上解码
+            pendingFrames.record(decodedFrames.size());
+            if (frame == null) {
+                if (codecError != null) {
+                    LogUtil.log("【CS】【decoder】解码器错误: " + codecError);
+                    break;
                 }
+                sawOutputEOS = outputEosDropped;
+                continue;
+            }
+            int outputBufferId = frame.index;
+            if ((frame.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                sawOutputEOS = true;
             }
-            int outputBufferId = decoder.dequeueOutputBuffer(info, DEFAULT_TIMEOUT_US);
-            if (outputBufferId >= 0) {
-                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                    sawOutputEOS = true;
+            boolean doRender = (frame.size != 0);
+            if (!doRender) {
+                decoder.releaseOutputBuffer(outputBufferId, false);
+            } else {
+                outputFrameCount++;
+                decodedCount.inc();
+                if (callback != null) {
+                    callback.onDecodeFrame(outputFrameCount);
                 }
-                boolean doRender = (info.size != 0);
-                if (doRender) {
-                    outputFrameCount++;
-                    if (callback != null) {
-                        callback.onDecodeFrame(outputFrameCount);
-                    }
-                    if (!is_first) {
-                        startWhen = System.currentTimeMillis();
-                        is_first = true;
+                // 迟到的帧不再转换，直接归还解码器
+                // 没有消费者时（Camera1 回调停止取帧）同样跳过转换，解码只维持进度
+                // 录制帧缓存时每一帧都要写入缓存，迟到 / 超出帧率的帧只跳过交付
+                boolean onTime = clock.await(frame.ptsUs);
+                if (!onTime) {
+                    lateFrames.inc();
+                    if (cacheWriter == null) {
+                        decoder.releaseOutputBuffer(outputBufferId, false);
+                        continue;
                     }
-                    if (configSurface == null) {
-                        // 内存解码模式：获取帧数据，做旋转处理
-                        Image image = decoder.getOutputImage(outputBufferId);
-
-                        // 动态重新计算旋转角度（配置可能被通知栏按钮实时更新）
-                        int currentManualOffset = 0;
-                        try {
-                            currentManualOffset = HookMain.getConfig().getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET,
-                                    0);
-                        } catch (Exception ignored) {
-                        }
-                        int effectiveRotation = (mVideoRotation + currentManualOffset + 360) % 360;
-
-                        boolean needSwapDimensions = (effectiveRotation == 90 || effectiveRotation == 270);
-                        int finalWidth = needSwapDimensions ? height : width;
-                        int finalHeight = needSwapDimensions ? width : height;
-
-                        byte[] rawData = getDataFromImage(image, COLOR_FormatNV21);
-                        byte[] processedData;
-
-                        // 1. Rotation
-                        if (effectiveRotation != 0) {
-                            processedData = rotateNV21(rawData, width, height, effectiveRotation);
-                        } else {
-                            processedData = rawData;
+                }
+                if (cacheWriter == null && !frameDemanded()) {
+                    idleFrames.inc();
+                    decoder.releaseOutputBuffer(outputBufferId, false);
+                    continue;
+                }
+                if (needSoftDecode) {
+                    if (gpu != null) {
+                        // GPU 路径：帧随 releaseOutputBuffer(id, true) 送入 SurfaceTexture，在 GL 线程转换并发布
+                        ConversionPlan p = currentPlan(width, height);
+                        if (outputImageFormat != null && !GLFrameConverter.canPack(p)) {
+                            // 旋转偏移 / 目标尺寸在播放中变为无法打包：结束本轮，下一轮改走 CPU 转换
+                            LogUtil.log("【CS】【decoder】输出尺寸 " + p.outWidth + "x" + p.outHeight
+                                    + " 无法 GPU 打包，切换到 CPU 转换");
+                            decoder.releaseOutputBuffer(outputBufferId, false);
+                            break;
                         }
-
-                        // 2. Scaling (if target size is set and mismatches)
-                        if (targetWidth > 0 && targetHeight > 0
-                                && (finalWidth != targetWidth || finalHeight != targetHeight)) {
-                            // LogUtil.log("【CS】Scaling frame from " + finalWidth + "x" + finalHeight + " to
-                            // " + targetWidth + "x" + targetHeight);
-                            processedData = cropAndScaleNV21(processedData, finalWidth, finalHeight, targetWidth,
-                                    targetHeight);
-                            finalWidth = targetWidth;
-                            finalHeight = targetHeight;
+                        gpu.setPlan(p);
+                        if (outputImageFormat != null && (targetWidth == 0 || targetHeight == 0)) {
+                            HookMain.mwidth = p.outWidth;
+                            HookMain.mhight = p.outHeight;
                         }
-
-                        if (mQueue != null) {
-                            try {
-                                mQueue.put(processedData);
-                            } catch (InterruptedException e) {
-                                LogUtil.log("【CS】" + e.toString());
-                                BytePool.release(processedData);
+                    } else {
+                        // 内存解码模式：获取帧数据，做旋转处理
+                        Image image = decoder.getOutputImage(outputBufferId);
+                        YuvView src = wrapImage(image);
+                        // 旋转偏移变化（通知栏按钮实时更新）时 ConfigWatcher 会使方案失效
+                        ConversionPlan p = currentPlan(src.width, src.height);
+                        int outWidth = p.outWidth;
+                        int outHeight = p.outHeight;
+                        int frameLength = p.frameLength;
+
+                        // 直接写入帧环槽位，读者持有的槽位不会被覆盖；槽位全忙时本帧不发布
+                        FrameRing.Slot slot = onTime && outputImageFormat != null
+                                ? HookMain.frameRing.claim(frameLength) : null;
+                        if (directFrames) {
+                            // 解码器输出平面 → 直接缓冲区 → 帧环 / 缓存文件 / ImageWriter，全程原生内存
+                            ByteBuffer buffer = slot != null ? slot.buffer() : DirectBufferPool.acquire(frameLength);
+                            long convertStart = System.nanoTime();
+                            converter.convert(src, p, buffer);
+                            convertUs.recordSinceNs(convertStart);
+                            if (cacheWriter != null && !cacheWriter.append(buffer, outWidth, outHeight,
+                                    frame.ptsUs)) {
+                                giveUpFrameCache("超出预算或画面几何变化");
                             }
-                        }
-                        if (outputImageFormat != null) {
-                            byte[] old = HookMain.data_buffer;
-                            HookMain.data_buffer = processedData;
-                            // Do NOT overwrite mwidth/mhight if we are respecting target size
-                            // If target size was set, these should match HookMain's expectations already
-                            if (targetWidth == 0 || targetHeight == 0) {
-                                HookMain.mwidth = finalWidth;
-                                HookMain.mhight = finalHeight;
+                            if (onTime) {
+                                deliverDirectFrame(slot, buffer, outWidth, outHeight, frameLength, frame.ptsUs);
+                            } else {
+                                DirectBufferPool.release(buffer);
                             }
-
-                            if (old != null && old.length > 1 && old != processedData) {
-                                BytePool.release(old);
+                        } else {
+                            byte[] processedData = slot != null ? slot.data() : BytePool.acquire(frameLength);
+                            // 平面读取 + 旋转 + 裁剪缩放一次完成
+                            long convertStart = System.nanoTime();
+                            converter.convert(src, p, processedData);
+                            convertUs.recordSinceNs(convertStart);
+                            if (cacheWriter != null && !cacheWriter.append(processedData, outWidth, outHeight,
+                                    frame.ptsUs)) {
+                                giveUpFrameCache("超出预算或画面几何变化");
                             }
-                        }
-
-                        // 如果有 play_surf（Camera2 reader Surface），将旋转后的帧渲染上去
-                        if (play_surf != null) {
-                            try {
-                                renderNV21ToSurface(processedData, finalWidth, finalHeight, play_surf);
-                            } catch (Exception e) {
-                                LogUtil.log("【CS】渲染到Surface失败: " + e.toString());
+                            if (onTime) {
+                                deliverFrame(slot, processedData, outWidth, outHeight, frameLength, frame.ptsUs);
+                            } else {
+                                BytePool.release(processedData);
                             }
                         }
 
                         image.close();
                     }
-                    long sleepTime = info.presentationTimeUs / 1000 - (System.currentTimeMillis() - startWhen);
-                    if (sleepTime > 0) {
-                        try {
-                            Thread.sleep(sleepTime);
-                        } catch (InterruptedException e) {
-                            LogUtil.log("【CS】" + e.toString());
-                            LogUtil.log("【CS】线程延迟出错");
-                        }
-                    }
-                    decoder.releaseOutputBuffer(outputBufferId, configSurface != null);
                 }
+                decoder.releaseOutputBuffer(outputBufferId, configSurface != null);
+            }
+        }
+        if (!sawOutputEOS && !stopDecode) {
+            endPassEarly(decoder);
+        }
+        decodedFrames.clear();
+        if (cacheWriter != null) {
+            // 完整解码一遍才生成缓存
+            if (sawOutputEOS && !stopDecode) {
+                frameCache = cacheWriter.finish();
+                if (frameCache == null) {
+                    uncacheableKeys.add(cacheWriter.key());
+                }
+                cacheWriter = null;
+            } else if (!stopDecode) {
+                cacheWriter.abort();
+                giveUpFrameCache("本轮未完整解码");
+            } else {
+                cacheWriter.abort();
+                cacheWriter = null;
             }
         }
         if (callback != null) {
@@ -456,171 +826,304 @@ public class VideoToFrames implements Runnable {
         }
     }
 
-    private int targetWidth = 0;
-    private int targetHeight = 0;
+    /**
+     * 交付一帧转换好的 NV21：旧队列、帧环发布、Camera2 reader Surface 渲染。
+     * slot 为 null 时 data 来自 BytePool，交付后归还。
+     */
+    private void deliverFrame(FrameRing.Slot slot, byte[] data, int width, int height, int length, long ptsUs) {
+        if (mQueue != null) {
+            byte[] queued = BytePool.acquire(length);
+            System.arraycopy(data, 0, queued, 0, length);
+            try {
+                mQueue.put(queued);
+            } catch (InterruptedException e) {
+                LogUtil.log("【CS】" + e.toString());
+                BytePool.release(queued);
+            }
+        }
+        publishSlot(slot, width, height, length, ptsUs);
 
-    public void setTargetSize(int w, int h) {
-        this.targetWidth = w;
-        this.targetHeight = h;
+        // 如果有 play_surf（Camera2 reader Surface），将旋转后的帧渲染上去
+        if (play_surf != null) {
+            try {
+                surfaceWriter(play_surf).write(data, width, height);
+            } catch (Exception e) {
+                LogUtil.log("【CS】渲染到Surface失败: " + e.toString());
+            }
+        }
+        if (slot == null) {
+            BytePool.release(data);
+        }
     }
 
-    private byte[] cropAndScaleNV21(byte[] src, int srcW, int srcH, int dstW, int dstH) {
-        float srcAspect = (float) srcW / srcH;
-        float dstAspect = (float) dstW / dstH;
+    /**
+     * 直接内存版本的 {@link #deliverFrame}：旧队列模式下不会走到这里。
+     * slot 为 null 时 buffer 来自 DirectBufferPool，交付后归还。
+     */
+    private void deliverDirectFrame(FrameRing.Slot slot, ByteBuffer buffer, int width, int height, int length,
+            long ptsUs) {
+        publishSlot(slot, width, height, length, ptsUs);
+        if (play_surf != null) {
+            try {
+                surfaceWriter(play_surf).write(buffer, width, height);
+            } catch (Exception e) {
+                LogUtil.log("【CS】渲染到Surface失败: " + e.toString());
+            }
+        }
+        if (slot == null) {
+            DirectBufferPool.release(buffer);
+        }
+    }
 
-        int cropW = srcW;
-        int cropH = srcH;
-        int cropX = 0;
-        int cropY = 0;
+    private void publishSlot(FrameRing.Slot slot, int width, int height, int length, long ptsUs) {
+        if (slot == null) {
+            return;
+        }
+        HookMain.frameRing.publish(slot, width, height, length, ptsUs);
+        // Do NOT overwrite mwidth/mhight if we are respecting target size
+        // If target size was set, these should match HookMain's expectations already
+        if (targetWidth == 0 || targetHeight == 0) {
+            HookMain.mwidth = width;
+            HookMain.mhight = height;
+        }
+    }
 
-        if (srcAspect > dstAspect) {
-            // Source is wider than target -> Crop horizontal
-            cropW = (int) (srcH * dstAspect);
-            cropW = cropW & ~1; // Ensure even
-            cropX = (srcW - cropW) / 2;
-            cropX = cropX & ~1; // Ensure even
-        } else if (srcAspect < dstAspect) {
-            // Source is taller than target -> Crop vertical
-            cropH = (int) (srcW / dstAspect);
-            cropH = cropH & ~1; // Ensure even
-            cropY = (srcH - cropH) / 2;
-            cropY = cropY & ~1; // Ensure even
+    /**
+     * 读取直接内存开关。旧队列消费者需要 byte[]，此时始终使用堆数组；
+     * 向帧环输出时同步切换槽位存储方式。
+     */
+    private void setupDirectFrames() {
+        boolean direct = false;
+        if (mQueue == null) {
+            try {
+                direct = HookMain.getConfig().getBoolean(ConfigManager.KEY_DIRECT_FRAMES, false);
+            } catch (Exception ignored) {
+            }
+        }
+        directFrames = direct;
+        if (outputImageFormat != null) {
+            HookMain.frameRing.setDirect(direct);
         }
+    }
 
-        byte[] dst = new byte[dstW * dstH * 3 / 2];
+    private PresentationClock createClock() {
+        boolean holdEarly = true;
+        int dropLateMs = 60;
+        try {
+            holdEarly = HookMain.getConfig().getBoolean(ConfigManager.KEY_FRAME_HOLD_EARLY, true);
+            dropLateMs = HookMain.getConfig().getInt(ConfigManager.KEY_FRAME_DROP_LATE_MS, 60);
+        } catch (Exception ignored) {
+        }
+        PresentationClock c = new PresentationClock(holdEarly, dropLateMs);
+        c.setMaxFrameRate(maxFrameRate);
+        if (stopDecode) {
+            c.cancel();
+        }
+        return c;
+    }
 
-        int scaleX_fp = (cropW << 16) / dstW;
-        int scaleY_fp = (cropH << 16) / dstH;
+    private static int readRotationOffset() {
+        try {
+            return HookMain.getConfig().getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
+        } catch (Exception ignored) {
+            return 0;
+        }
+    }
 
-        // Scale Y using Bilinear Interpolation
-        for (int y = 0; y < dstH; y++) {
-            float sy = cropY + y * (float) cropH / dstH;
-            int y0 = (int) sy;
-            int y1 = Math.min(y0 + 1, cropY + cropH - 1);
-            float dy = sy - y0;
-            float dy1 = 1.0f - dy;
+    /**
+     * 旋转偏移变化时由 ConfigWatcher 回调（经 HookMain）通知，下一帧重建转换方案。
+     */
+    public void setRotationOffset(int degrees) {
+        rotationOffset = degrees;
+        plan = null;
+    }
 
-            int dstRowOffset = y * dstW;
-            int srcRowOffset0 = y0 * srcW;
-            int srcRowOffset1 = y1 * srcW;
+    /**
+     * 取得源尺寸对应的转换方案，失效或源尺寸变化时重建。
+     */
+    private ConversionPlan currentPlan(int width, int height) {
+        ConversionPlan p = plan;
+        if (p == null || !p.matches(width, height)) {
+            p = ConversionPlan.create(width, height, mVideoRotation, rotationOffset, targetWidth, targetHeight);
+            plan = p;
+            LogUtil.log("【CS】【decoder】转换方案: " + p);
+        }
+        return p;
+    }
 
-            for (int x = 0; x < dstW; x++) {
-                float sx = cropX + x * (float) cropW / dstW;
-                int x0 = (int) sx;
-                int x1 = Math.min(x0 + 1, cropX + cropW - 1);
-                float dx = sx - x0;
-                float dx1 = 1.0f - dx;
+    private boolean needSoftDecode(int effectiveRotation) {
+        return effectiveRotation != 0 || outputImageFormat != null;
+    }
 
-                int p00 = src[srcRowOffset0 + x0] & 0xFF;
-                int p01 = src[srcRowOffset0 + x1] & 0xFF;
-                int p10 = src[srcRowOffset1 + x0] & 0xFF;
-                int p11 = src[srcRowOffset1 + x1] & 0xFF;
+    private static File frameCacheDir() {
+        android.content.Context context = HookMain.toast_content;
+        return context != null ? new File(context.getCacheDir(), "camswap_frames") : null;
+    }
 
-                float val = (p00 * dx1 + p01 * dx) * dy1 + (p10 * dx1 + p11 * dx) * dy;
-                dst[dstRowOffset + x] = (byte) (int) val;
-            }
+    /**
+     * 帧缓存需要在配置中设置 KEY_FRAME_CACHE_MB 开启：录制写进被 Hook 应用的缓存目录，且首轮只能走 CPU 转换。
+     */
+    private static long frameCacheBudget() {
+        int mb = 0;
+        try {
+            mb = HookMain.getConfig().getInt(ConfigManager.KEY_FRAME_CACHE_MB, 0);
+        } catch (Exception ignored) {
         }
+        return mb * 1024L * 1024L;
+    }
 
-        // Scale UV using Nearest Neighbor (sufficient for chroma and faster)
-        int srcUVStart = srcW * srcH;
-        int dstUVStart = dstW * dstH;
-        for (int y = 0; y < dstH / 2; y++) {
-            int sy = (cropY / 2) + ((y * scaleY_fp) >> 16);
-            int srcRowOffset = srcUVStart + sy * srcW;
-            int dstRowOffset = dstUVStart + y * dstW;
-            for (int x = 0; x < dstW / 2; x++) {
-                int sx = (cropX / 2) + ((x * scaleX_fp) >> 16);
-                int srcColOffset = sx * 2;
-                dst[dstRowOffset + x * 2] = src[srcRowOffset + srcColOffset];
-                dst[dstRowOffset + x * 2 + 1] = src[srcRowOffset + srcColOffset + 1];
-            }
+    /**
+     * 当前视频在当前几何下能放进预算时开始录制帧缓存，否则返回 null（继续实时解码）。
+     */
+    private FrameCache.Writer startFrameCache(MediaFormat mediaFormat) {
+        File dir = frameCacheDir();
+        long budget = frameCacheBudget();
+        if (sourceKey == null || dir == null || budget <= 0 || mQueue != null) {
+            return null;
+        }
+        long durationUs = mediaFormat.containsKey(MediaFormat.KEY_DURATION)
+                ? mediaFormat.getLong(MediaFormat.KEY_DURATION) : 0;
+        int frameRate = mediaFormat.containsKey(MediaFormat.KEY_FRAME_RATE)
+                ? mediaFormat.getInteger(MediaFormat.KEY_FRAME_RATE) : 30;
+        long estimatedFrames = durationUs * Math.max(frameRate, 1) / 1_000_000L;
+        ConversionPlan p = currentPlan(mediaFormat.getInteger(MediaFormat.KEY_WIDTH),
+                mediaFormat.getInteger(MediaFormat.KEY_HEIGHT));
+        String key = FrameCache.key(sourceKey, p.rotation, p.outWidth, p.outHeight);
+        if (uncacheableKeys.contains(key)) {
+            return null;
         }
-        return dst;
+        FrameCache.Writer writer = FrameCache.Writer.create(dir, key, budget, p.outWidth, p.outHeight,
+                estimatedFrames);
+        if (writer != null) {
+            LogUtil.log("【CS】【FrameCache】开始录制, 预计 " + estimatedFrames + " 帧");
+        } else {
+            uncacheableKeys.add(key);
+        }
+        return writer;
     }
 
     /**
-     * 将 NV21 数据转为 Bitmap 并渲染到指定 Surface。
-     * 用于 Camera2 reader 路径在旋转后手动渲染帧。
+     * 放弃当前录制并记住它的键，同一视频与几何不再录制或查找缓存。
      */
-    private void renderNV21ToSurface(byte[] nv21Data, int width, int height, Surface surface) {
-        android.graphics.YuvImage yuvImage = new android.graphics.YuvImage(
-                nv21Data, android.graphics.ImageFormat.NV21, width, height, null);
-        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-        yuvImage.compressToJpeg(new android.graphics.Rect(0, 0, width, height), 90, baos);
-        byte[] jpegData = baos.toByteArray();
-        android.graphics.Bitmap bitmap = android.graphics.BitmapFactory.decodeByteArray(jpegData, 0, jpegData.length);
-
-        if (bitmap != null) {
-            android.graphics.Canvas canvas = surface.lockCanvas(null);
-            if (canvas != null) {
-                // 缩放 bitmap 以填充 canvas
-                android.graphics.Rect destRect = new android.graphics.Rect(0, 0, canvas.getWidth(), canvas.getHeight());
-                canvas.drawBitmap(bitmap, null, destRect, null);
-                surface.unlockCanvasAndPost(canvas);
-            }
-            bitmap.recycle();
-        }
-    }
-
-    private byte[] rotateNV21(byte[] input, int width, int height, int rotation) {
-        byte[] output = new byte[input.length];
-        int frameSize = width * height;
-        boolean swap = (rotation == 90 || rotation == 270);
-
-        // 90 degrees CW
-        if (rotation == 90) {
-            int k = 0;
-            // Rotate Y
-            for (int x = 0; x < width; x++) {
-                for (int y = height - 1; y >= 0; y--) {
-                    output[k++] = input[y * width + x];
-                }
-            }
-            // Rotate UV
-            for (int x = 0; x < width; x += 2) {
-                for (int y = height / 2 - 1; y >= 0; y--) {
-                    output[k++] = input[frameSize + y * width + x];
-                    output[k++] = input[frameSize + y * width + x + 1];
-                }
-            }
-            return output;
+    private void giveUpFrameCache(String reason) {
+        LogUtil.log("【CS】【FrameCache】放弃录制（" + reason + "）");
+        uncacheableKeys.add(cacheWriter.key());
+        cacheWriter = null;
+    }
+
+    private void abortFrameCache() {
+        if (cacheWriter != null) {
+            cacheWriter.abort();
+            cacheWriter = null;
         }
+        frameCache = null;
+    }
 
-        // 180 degrees
-        if (rotation == 180) {
-            int k = 0;
-            // Rotate Y
-            for (int i = frameSize - 1; i >= 0; i--) {
-                output[k++] = input[i];
+    /**
+     * 当前几何存在完整帧缓存时按时间戳回放一整轮，返回 true；否则返回 false 由调用方解码。
+     */
+    private boolean replayFrameCache(MediaCodec decoder, MediaFormat mediaFormat) {
+        if (sourceKey == null || mQueue != null) {
+            return false;
+        }
+        ConversionPlan p = currentPlan(mediaFormat.getInteger(MediaFormat.KEY_WIDTH),
+                mediaFormat.getInteger(MediaFormat.KEY_HEIGHT));
+        if (!needSoftDecode(p.rotation)) {
+            return false;
+        }
+        String key = FrameCache.key(sourceKey, p.rotation, p.outWidth, p.outHeight);
+        FrameCache cache = frameCache;
+        if (cache == null || !cache.key().equals(key)) {
+            if (uncacheableKeys.contains(key)) {
+                return false;
             }
-            // Rotate UV
-            for (int i = input.length - 2; i >= frameSize; i -= 2) {
-                output[k++] = input[i]; // V
-                output[k++] = input[i + 1]; // U
+            File dir = frameCacheDir();
+            cache = dir != null && frameCacheBudget() > 0 ? FrameCache.open(dir, key) : null;
+            frameCache = cache;
+            if (cache == null) {
+                return false;
             }
-            return output;
+            LogUtil.log("【CS】【FrameCache】命中缓存 " + cache.frameCount() + " 帧 " + cache.width() + "x"
+                    + cache.height());
         }
 
-        // 270 degrees CW (or 90 CCW)
-        if (rotation == 270) {
-            int k = 0;
-            // Rotate Y
-            for (int x = width - 1; x >= 0; x--) {
-                for (int y = 0; y < height; y++) {
-                    output[k++] = input[y * width + x];
-                }
+        int length = cache.frameLength();
+        // 回放经 ImageWriter 写入 play_surf：解码器（直出或输出到即将释放的 GPU 转换器）先停下，
+        // GPU 转换器在创建 ImageWriter 时断开
+        releaseDecoderSurface(decoder);
+        clock.beginPass();
+        for (int i = 0; i < cache.frameCount() && !stopDecode; i++) {
+            if (callback != null) {
+                callback.onDecodeFrame(i + 1);
             }
-            // Rotate UV
-            for (int x = width - 2; x >= 0; x -= 2) {
-                for (int y = 0; y < height / 2; y++) {
-                    output[k++] = input[frameSize + y * width + x];
-                    output[k++] = input[frameSize + y * width + x + 1];
-                }
+            if (!clock.await(cache.ptsUs(i))) {
+                lateFrames.inc();
+                continue;
             }
-            return output;
+            if (!frameDemanded()) {
+                idleFrames.inc();
+                continue;
+            }
+            replayedFrames.inc();
+            FrameRing.Slot slot = outputImageFormat != null ? HookMain.frameRing.claim(length) : null;
+            if (directFrames) {
+                ByteBuffer buffer = slot != null ? slot.buffer() : DirectBufferPool.acquire(length);
+                cache.read(i, buffer);
+                deliverDirectFrame(slot, buffer, cache.width(), cache.height(), length, cache.ptsUs(i));
+            } else {
+                byte[] data = slot != null ? slot.data() : BytePool.acquire(length);
+                cache.read(i, data);
+                deliverFrame(slot, data, cache.width(), cache.height(), length, cache.ptsUs(i));
+            }
+        }
+        if (callback != null) {
+            callback.onFinishDecode();
         }
+        return true;
+    }
+
+    private volatile int targetWidth = 0;
+    private volatile int targetHeight = 0;
 
-        return input;
+    public void setTargetSize(int w, int h) {
+        this.targetWidth = w;
+        this.targetHeight = h;
+        plan = null;
+    }
+
+    private volatile int maxFrameRate = 0;
+
+    /**
+     * 按消费者帧率交付（Camera1 的 getPreviewFrameRate()），源帧率更高时多余的帧不做转换。
+     */
+    public void setMaxFrameRate(int fps) {
+        maxFrameRate = fps;
+        PresentationClock c = clock;
+        if (c != null) {
+            c.setMaxFrameRate(fps);
+        }
+    }
+
+    /**
+     * 是否有人需要本帧：只输出到帧环时，消费者一段时间没有取帧就不再转换。
+     */
+    private boolean frameDemanded() {
+        return mQueue != null || play_surf != null || outputImageFormat == null
+                || HookMain.frameRing.wantsFrame();
+    }
+
+    /**
+     * 取得绑定 surface 的帧写入器（ImageWriter 直写 YUV，或查表转 ARGB 后 Canvas 绘制）。
+     * 用于 Camera2 reader 路径在旋转后手动渲染帧。
+     */
+    private SurfaceFrameWriter surfaceWriter(Surface surface) {
+        if (surfaceWriter == null || surfaceWriter.getSurface() != surface) {
+            releaseSurfaceWriter();
+            // 之前 GPU 转换器的 EGL 窗口还连着同一个 Surface 时先断开（例如旋转变化后改为回放缓存）
+            releaseGLConverter();
+            surfaceWriter = new SurfaceFrameWriter(surface);
+        }
+        return surfaceWriter;
     }
 
     private static int selectTrack(MediaExtractor extractor) {
@@ -646,74 +1149,18 @@ public class VideoToFrames implements Runnable {
         return false;
     }
 
-    private static byte[] getDataFromImage(Image image, int colorFormat) {
-        if (colorFormat != COLOR_FormatI420 && colorFormat != COLOR_FormatNV21) {
-            throw new IllegalArgumentException("only support COLOR_FormatI420 " + "and COLOR_FormatNV21");
-        }
+    /**
+     * 把解码输出 Image 的平面描述装入复用的 Source（不拷贝数据）。
+     */
+    private YuvView wrapImage(Image image) {
         if (!isImageFormatSupported(image)) {
             throw new RuntimeException("can't convert Image to byte array, format " + image.getFormat());
         }
         Rect crop = image.getCropRect();
-        int format = image.getFormat();
-        int width = crop.width();
-        int height = crop.height();
         Image.Plane[] planes = image.getPlanes();
-        byte[] data = BytePool.acquire(width * height * ImageFormat.getBitsPerPixel(format) / 8);
-        byte[] rowData = new byte[planes[0].getRowStride()];
-        int channelOffset = 0;
-        int outputStride = 1;
-        for (int i = 0; i < planes.length; i++) {
-            switch (i) {
-                case 0:
-                    channelOffset = 0;
-                    outputStride = 1;
-                    break;
-                case 1:
-                    if (colorFormat == COLOR_FormatI420) {
-                        channelOffset = width * height;
-                        outputStride = 1;
-                    } else if (colorFormat == COLOR_FormatNV21) {
-                        channelOffset = width * height + 1;
-                        outputStride = 2;
-                    }
-                    break;
-                case 2:
-                    if (colorFormat == COLOR_FormatI420) {
-                        channelOffset = (int) (width * height * 1.25);
-                        outputStride = 1;
-                    } else if (colorFormat == COLOR_FormatNV21) {
-                        channelOffset = width * height;
-                        outputStride = 2;
-                    }
-                    break;
-            }
-            ByteBuffer buffer = planes[i].getBuffer();
-            int rowStride = planes[i].getRowStride();
-            int pixelStride = planes[i].getPixelStride();
-            int shift = (i == 0) ? 0 : 1;
-            int w = width >> shift;
-            int h = height >> shift;
-            buffer.position(rowStride * (crop.top >> shift) + pixelStride * (crop.left >> shift));
-            for (int row = 0; row < h; row++) {
-                int length;
-                if (pixelStride == 1 && outputStride == 1) {
-                    length = w;
-                    buffer.get(data, channelOffset, length);
-                    channelOffset += length;
-                } else {
-                    length = (w - 1) * pixelStride + 1;
-                    buffer.get(rowData, 0, length);
-                    for (int col = 0; col < w; col++) {
-                        data[channelOffset] = rowData[col * pixelStride];
-                        channelOffset += outputStride;
-                    }
-                }
-                if (row < h - 1) {
-                    buffer.position(buffer.position() + rowStride - length);
-                }
-            }
-        }
-        return data;
+        return imageView.set(planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(),
+                planes[1].getPixelStride(), crop.left, crop.top, crop.width(), crop.height());
     }
 
 }
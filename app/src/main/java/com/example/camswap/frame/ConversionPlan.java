@@ -0,0 +1,76 @@
+package com.example.camswap.frame;
+
+/**
+ * 一种输入几何下的帧转换方案（不可变）。
+ * <p>
+ * 源尺寸、有效旋转角度、输出尺寸和居中裁剪区域在方案创建时一次算好，
+ * 解码循环每帧只做一次引用读取和尺寸比较；旋转偏移或目标尺寸变化时由
+ * 调用方（VideoToFrames）丢弃旧方案重建。缩放采样表仍由 {@link Nv21Scaler} 按同一几何缓存。
+ */
+public final class ConversionPlan {
+    public final int srcWidth;
+    public final int srcHeight;
+    /** 有效旋转角度（视频自带旋转 + 手动偏移），0/90/180/270 */
+    public final int rotation;
+    /** 旋转后的画面尺寸 */
+    public final int rotatedWidth;
+    public final int rotatedHeight;
+    public final int outWidth;
+    public final int outHeight;
+    /** 旋转后画面中的裁剪区域，需要缩放时才与画面不同 */
+    public final int cropX;
+    public final int cropY;
+    public final int cropWidth;
+    public final int cropHeight;
+    /** 输出 NV21 帧字节数 */
+    public final int frameLength;
+
+    private final int[] crop;
+
+    private ConversionPlan(int srcWidth, int srcHeight, int rotation, int targetWidth, int targetHeight) {
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.rotation = rotation;
+        boolean swap = rotation == 90 || rotation == 270;
+        this.rotatedWidth = swap ? srcHeight : srcWidth;
+        this.rotatedHeight = swap ? srcWidth : srcHeight;
+        boolean scale = targetWidth > 0 && targetHeight > 0
+                && (rotatedWidth != targetWidth || rotatedHeight != targetHeight);
+        this.outWidth = scale ? targetWidth : rotatedWidth;
+        this.outHeight = scale ? targetHeight : rotatedHeight;
+        this.crop = Nv21Converter.computeCrop(rotatedWidth, rotatedHeight, outWidth, outHeight);
+        this.cropX = crop[0];
+        this.cropY = crop[1];
+        this.cropWidth = crop[2];
+        this.cropHeight = crop[3];
+        this.frameLength = outWidth * outHeight * 3 / 2;
+    }
+
+    /**
+     * @param videoRotation  视频元数据中的旋转角度
+     * @param rotationOffset 用户设置的旋转偏移
+     * @param targetWidth    目标宽度，0 表示不缩放
+     */
+    public static ConversionPlan create(int srcWidth, int srcHeight, int videoRotation, int rotationOffset,
+            int targetWidth, int targetHeight) {
+        int rotation = (((videoRotation + rotationOffset) % 360) + 360) % 360;
+        return new ConversionPlan(srcWidth, srcHeight, rotation, targetWidth, targetHeight);
+    }
+
+    public boolean matches(int srcWidth, int srcHeight) {
+        return this.srcWidth == srcWidth && this.srcHeight == srcHeight;
+    }
+
+    /**
+     * 裁剪区域 {x, y, w, h}，调用方不得修改。
+     */
+    public int[] crop() {
+        return crop;
+    }
+
+    @Override
+    public String toString() {
+        return srcWidth + "x" + srcHeight + " rot=" + rotation + " -> " + outWidth + "x" + outHeight
+                + " crop=" + cropX + "," + cropY + " " + cropWidth + "x" + cropHeight;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.camswap.frame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 直接内存帧缓冲池。
+ * <p>
+ * 容量按 {@link #ALIGN} 向上取整分类复用，同一几何的帧总是拿到同一尺寸类的缓冲区；
+ * 直接内存不受 GC 移动，与 MediaCodec / ImageWriter / mmap 之间的拷贝都是原生内存拷贝。
+ * 池内总字节数受预算约束，超出时新归还的缓冲区直接丢弃交给 GC（由 Cleaner 释放原生内存）。
+ */
+public final class DirectBufferPool {
+    /** 容量对齐粒度（一页） */
+    public static final int ALIGN = 4096;
+    private static final int MAX_PER_CLASS = 4;
+    private static final long BUDGET_BYTES = 64L * 1024 * 1024;
+
+    private static final class SizeClass {
+        final ConcurrentLinkedDeque<ByteBuffer> buffers = new ConcurrentLinkedDeque<>();
+        final AtomicInteger count = new AtomicInteger();
+    }
+
+    private static final Map<Integer, SizeClass> classes = new ConcurrentHashMap<>();
+    private static final AtomicLong pooledBytes = new AtomicLong();
+    private static final AtomicLong allocated = new AtomicLong();
+
+    private DirectBufferPool() {
+    }
+
+    static int capacityFor(int length) {
+        return (length + ALIGN - 1) / ALIGN * ALIGN;
+    }
+
+    /**
+     * 取得至少 length 字节的直接缓冲区，position 为 0、limit 为 length。
+     */
+    public static ByteBuffer acquire(int length) {
+        int capacity = capacityFor(length);
+        SizeClass sizeClass = classes.get(capacity);
+        ByteBuffer buffer = sizeClass != null ? sizeClass.buffers.pollFirst() : null;
+        if (buffer != null) {
+            sizeClass.count.decrementAndGet();
+            pooledBytes.addAndGet(-capacity);
+        } else {
+            buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+            allocated.incrementAndGet();
+        }
+        buffer.clear();
+        buffer.limit(length);
+        return buffer;
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        int capacity = buffer.capacity();
+        if (capacity % ALIGN != 0) {
+            return; // 不是本池分配的
+        }
+        SizeClass sizeClass = classes.get(capacity);
+        if (sizeClass == null) {
+            SizeClass created = new SizeClass();
+            sizeClass = classes.putIfAbsent(capacity, created);
+            if (sizeClass == null) {
+                sizeClass = created;
+            }
+        }
+        if (sizeClass.count.incrementAndGet() > MAX_PER_CLASS) {
+            sizeClass.count.decrementAndGet();
+            return;
+        }
+        if (pooledBytes.addAndGet(capacity) > BUDGET_BYTES) {
+            pooledBytes.addAndGet(-capacity);
+            sizeClass.count.decrementAndGet();
+            return;
+        }
+        sizeClass.buffers.offerFirst(buffer);
+    }
+
+    /**
+     * 累计分配的直接缓冲区个数（命中池时不增加）。
+     */
+    public static long allocatedCount() {
+        return allocated.get();
+    }
+
+    public static void clear() {
+        classes.clear();
+        pooledBytes.set(0);
+    }
+}
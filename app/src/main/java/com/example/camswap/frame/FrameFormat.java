@@ -0,0 +1,54 @@
+package com.example.camswap.frame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 连续存放的 YUV 4:2:0 帧格式（宽高均为偶数）。
+ */
+public enum FrameFormat {
+    /** Y 平面后接 VU 交错平面（Camera1 预览回调格式） */
+    NV21,
+    /** Y 平面后接 UV 交错平面（MediaCodec 编码器常用输入） */
+    NV12,
+    /** Y、U、V 三个独立平面（YUV420P） */
+    I420;
+
+    public int frameLength(int width, int height) {
+        return width * height * 3 / 2;
+    }
+
+    /**
+     * 把连续数组包装为跨步视图写入 out 并返回。
+     */
+    public YuvView view(byte[] data, int width, int height, YuvView out) {
+        return view(ByteBuffer.wrap(data), width, height, out);
+    }
+
+    /**
+     * 把 buffer 从 position 开始的一帧包装为跨步视图（不改变 buffer 的 position/limit）。
+     */
+    public YuvView view(ByteBuffer buffer, int width, int height, YuvView out) {
+        int frameSize = width * height;
+        int base = buffer.position();
+        ByteBuffer yBuf = slice(buffer, base, frameSize);
+        switch (this) {
+            case NV21:
+                return out.set(yBuf, width, 1, slice(buffer, base + frameSize + 1, frameSize / 2 - 1),
+                        slice(buffer, base + frameSize, frameSize / 2), width, 2, 0, 0, width, height);
+            case NV12:
+                return out.set(yBuf, width, 1, slice(buffer, base + frameSize, frameSize / 2),
+                        slice(buffer, base + frameSize + 1, frameSize / 2 - 1), width, 2, 0, 0, width, height);
+            default:
+                return out.set(yBuf, width, 1, slice(buffer, base + frameSize, frameSize / 4),
+                        slice(buffer, base + frameSize + frameSize / 4, frameSize / 4), width / 2, 1, 0, 0,
+                        width, height);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.limit(offset + length);
+        dup.position(offset);
+        return dup.slice();
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.camswap.frame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 融合的 “YUV 平面 → 旋转 → 裁剪/缩放 → NV21” 转换内核。
+ * <p>
+ * 直接从解码器输出的 Y/U/V 平面（任意 rowStride / pixelStride）按目标像素反向映射取样，
+ * 一次遍历写入调用方提供的 NV21 缓冲区，不再产生中间帧。
+ * 不依赖任何 Android 类型，可在 JVM 上测试。
+ * <p>
+ * 实例持有可复用的行缓冲区，非线程安全，每个解码线程使用自己的实例。
+ * 可选通过 {@link #setParallelism(int)} 把一帧切成横条在固定线程池上并行处理。
+ */
+public final class Nv21Converter implements StripExecutor.StripTask {
+    private static final int MODE_COPY = 0;
+    private static final int MODE_ROTATE = 1;
+    private static final int MODE_SCALE = 2;
+
+    private final Nv21Scaler scaler = new Nv21Scaler();
+    private boolean mirror;
+    private boolean flip;
+    private StripExecutor strips;
+    private byte[][] rowScratch = new byte[1][];
+
+    // 当前帧参数，供各条 run() 读取
+    private YuvView curSrc;
+    private byte[] curDst;
+    private int curRotation;
+    private int curMode;
+    private Nv21Scaler.Tables curTables;
+    private final YuvView arrayView = new YuvView();
+    private byte[] heapFrame;
+    private byte[] chromaRow;
+
+    /**
+     * 计算旋转后画面为适配目标宽高比所需的居中裁剪区域（偶数对齐）。
+     *
+     * @return {cropX, cropY, cropW, cropH}
+     */
+    public static int[] computeCrop(int srcW, int srcH, int dstW, int dstH) {
+        float srcAspect = (float) srcW / srcH;
+        float dstAspect = (float) dstW / dstH;
+        int cropW = srcW;
+        int cropH = srcH;
+        int cropX = 0;
+        int cropY = 0;
+        if (srcAspect > dstAspect) {
+            // Source is wider than target -> Crop horizontal
+            cropW = ((int) (srcH * dstAspect)) & ~1;
+            cropX = ((srcW - cropW) / 2) & ~1;
+        } else if (srcAspect < dstAspect) {
+            // Source is taller than target -> Crop vertical
+            cropH = ((int) (srcW / dstAspect)) & ~1;
+            cropY = ((srcH - cropH) / 2) & ~1;
+        }
+        return new int[] { cropX, cropY, cropW, cropH };
+    }
+
+    /**
+     * 设置缩放滤波方式，见 {@link Nv21Scaler#FILTER_AUTO} 等。
+     */
+    public void setFilter(int filter) {
+        scaler.setFilter(filter);
+    }
+
+    /**
+     * 设置并行条数（含调用线程）。小于 2 时关闭并行，所有转换在调用线程完成。
+     */
+    public void setParallelism(int threads) {
+        int current = strips != null ? strips.threads() : 1;
+        if (threads < 2) {
+            threads = 1;
+        }
+        if (threads == current) {
+            return;
+        }
+        release();
+        if (threads > 1) {
+            strips = new StripExecutor(threads);
+            rowScratch = new byte[threads][];
+        }
+    }
+
+    /**
+     * 停止并行 worker 线程。
+     */
+    public void release() {
+        if (strips != null) {
+            strips.shutdown();
+            strips = null;
+        }
+        rowScratch = new byte[1][];
+    }
+
+    /**
+     * 旋转后再左右镜像 / 上下翻转（前置摄像头画面）。
+     */
+    public void setMirror(boolean mirror, boolean flip) {
+        this.mirror = mirror;
+        this.flip = flip;
+    }
+
+    /**
+     * 对连续 NV21 数组做旋转 + 裁剪缩放。
+     */
+    public void convert(byte[] nv21, int width, int height, int rotation, byte[] dst, int dstW, int dstH) {
+        convert(arrayView.setNv21(nv21, width, height), rotation, dst, dstW, dstH);
+    }
+
+    /**
+     * 对连续 NV21 / NV12 / I420 数组做旋转 + 裁剪缩放，输出 NV21。
+     */
+    public void convert(FrameFormat format, byte[] src, int width, int height, int rotation, byte[] dst,
+            int dstW, int dstH) {
+        convert(format.view(src, width, height, arrayView), rotation, dst, dstW, dstH);
+    }
+
+    /**
+     * 将源平面顺时针旋转 rotation 度，再居中裁剪并缩放到 dstW x dstH，写入 dst（NV21）。
+     * dstW/dstH 为 0 时输出旋转后的原始尺寸。
+     */
+    public void convert(YuvView src, int rotation, byte[] dst, int dstW, int dstH) {
+        rotation = ((rotation % 360) + 360) % 360;
+        boolean swap = rotation == 90 || rotation == 270;
+        int rotW = swap ? src.height : src.width;
+        int rotH = swap ? src.width : src.height;
+        if (dstW <= 0 || dstH <= 0) {
+            dstW = rotW;
+            dstH = rotH;
+        }
+        int[] crop = dstW == rotW && dstH == rotH ? null : computeCrop(rotW, rotH, dstW, dstH);
+        convert(src, rotation, crop, dst, dstW, dstH);
+    }
+
+    /**
+     * 按预先算好的转换方案转换，不再重复计算旋转尺寸与裁剪区域。
+     */
+    public void convert(YuvView src, ConversionPlan plan, byte[] dst) {
+        boolean same = plan.outWidth == plan.rotatedWidth && plan.outHeight == plan.rotatedHeight;
+        convert(src, plan.rotation, same ? null : plan.crop(), dst, plan.outWidth, plan.outHeight);
+    }
+
+    /**
+     * 按转换方案输出到直接缓冲区：从 dst 的当前 position 起写入 plan.frameLength 字节，不改变 position。
+     * <p>
+     * 无旋转、缩放、镜像时 Y 平面逐行 ByteBuffer 批量拷贝，色度逐行在小的行缓冲区交错后批量写入，
+     * 整帧不经过 Java 堆；其余情况在复用的堆帧中计算后一次批量写入。
+     */
+    public void convert(YuvView src, ConversionPlan plan, ByteBuffer dst) {
+        boolean same = plan.outWidth == plan.rotatedWidth && plan.outHeight == plan.rotatedHeight;
+        ByteBuffer out = dst.duplicate();
+        if (same && plan.rotation == 0 && !mirror && !flip) {
+            copyPlanes(src, out);
+            return;
+        }
+        if (heapFrame == null || heapFrame.length < plan.frameLength) {
+            heapFrame = new byte[plan.frameLength];
+        }
+        convert(src, plan, heapFrame);
+        out.put(heapFrame, 0, plan.frameLength);
+    }
+
+    private void convert(YuvView src, int rotation, int[] crop, byte[] dst, int dstW, int dstH) {
+        curSrc = src;
+        curRotation = rotation;
+        curDst = dst;
+        if (crop == null) {
+            // 纯旋转 / 镜像走分块遍历，避免按列读源；无变换时整行拷贝
+            curMode = (rotation == 0 && !mirror && !flip) ? MODE_COPY : MODE_ROTATE;
+            curTables = null;
+        } else {
+            curMode = MODE_SCALE;
+            curTables = scaler.tables(src, rotation, mirror, flip, crop, dstW, dstH);
+        }
+        try {
+            if (strips != null) {
+                strips.run(this, dstH);
+            } else {
+                run(0, 0, dstH);
+            }
+        } finally {
+            curSrc = null;
+            curDst = null;
+        }
+    }
+
+    @Override
+    public void run(int strip, int rowStart, int rowEnd) {
+        switch (curMode) {
+            case MODE_COPY:
+                copyPlanes(curSrc, curDst, strip, rowStart, rowEnd);
+                break;
+            case MODE_ROTATE:
+                Nv21Rotator.transform(curSrc, curRotation, mirror, flip, curDst, rowStart, rowEnd);
+                break;
+            default:
+                scaler.scale(curSrc, curTables, curDst, rowStart, rowEnd);
+                break;
+        }
+    }
+
+    // =====================================================================
+    // Fast path: no rotation, no scaling — bulk row copies
+    // =====================================================================
+
+    private void copyPlanes(YuvView src, byte[] dst, int strip, int rowStart, int rowEnd) {
+        int w = src.width;
+        ByteBuffer y = src.y;
+        ByteBuffer u = src.u;
+        ByteBuffer v = src.v;
+        if (strips != null) {
+            // 并行时各条修改自己的 position，不能共用同一个 ByteBuffer
+            y = y.duplicate();
+            u = u.duplicate();
+            v = v.duplicate();
+        }
+        int yBase = src.top * src.yRowStride + src.left * src.yPixelStride;
+        if (src.yPixelStride == 1) {
+            for (int row = rowStart; row < rowEnd; row++) {
+                y.position(yBase + row * src.yRowStride);
+                y.get(dst, row * w, w);
+            }
+        } else {
+            for (int row = rowStart; row < rowEnd; row++) {
+                int rowPos = yBase + row * src.yRowStride;
+                int out = row * w;
+                for (int col = 0; col < w; col++) {
+                    dst[out + col] = y.get(rowPos + col * src.yPixelStride);
+                }
+            }
+        }
+
+        int cw = w / 2;
+        int cStart = rowStart / 2;
+        int cEnd = rowEnd / 2;
+        int ps = src.uvPixelStride;
+        int uvBase = (src.top / 2) * src.uvRowStride + (src.left / 2) * ps;
+        int frameSize = w * src.height;
+        if (ps == 2) {
+            // 半平面交错布局：V 行整体拷入目标，U 行拷入暂存后填奇数位
+            int rowLen = cw * 2 - 1;
+            byte[] scratch = scratch(strip, rowLen);
+            for (int row = cStart; row < cEnd; row++) {
+                int srcPos = uvBase + row * src.uvRowStride;
+                int out = frameSize + row * w;
+                v.position(srcPos);
+                v.get(dst, out, rowLen);
+                u.position(srcPos);
+                u.get(scratch, 0, rowLen);
+                for (int i = 0; i < cw; i++) {
+                    dst[out + 2 * i + 1] = scratch[2 * i];
+                }
+            }
+        } else if (ps == 1) {
+            byte[] scratch = scratch(strip, cw * 2);
+            for (int row = cStart; row < cEnd; row++) {
+                int srcPos = uvBase + row * src.uvRowStride;
+                int out = frameSize + row * w;
+                v.position(srcPos);
+                v.get(scratch, 0, cw);
+                u.position(srcPos);
+                u.get(scratch, cw, cw);
+                for (int i = 0; i < cw; i++) {
+                    dst[out + 2 * i] = scratch[i];
+                    dst[out + 2 * i + 1] = scratch[cw + i];
+                }
+            }
+        } else {
+            for (int row = cStart; row < cEnd; row++) {
+                int srcPos = uvBase + row * src.uvRowStride;
+                int out = frameSize + row * w;
+                for (int i = 0; i < cw; i++) {
+                    dst[out + 2 * i] = v.get(srcPos + i * ps);
+                    dst[out + 2 * i + 1] = u.get(srcPos + i * ps);
+                }
+            }
+        }
+    }
+
+    private void copyPlanes(YuvView src, ByteBuffer out) {
+        int w = src.width;
+        int h = src.height;
+        int base = out.position();
+        int yBase = src.top * src.yRowStride + src.left * src.yPixelStride;
+        if (src.yPixelStride == 1) {
+            ByteBuffer y = src.y.duplicate();
+            for (int row = 0; row < h; row++) {
+                int pos = yBase + row * src.yRowStride;
+                y.limit(pos + w);
+                y.position(pos);
+                out.position(base + row * w);
+                out.put(y);
+            }
+        } else {
+            for (int row = 0; row < h; row++) {
+                int rowPos = yBase + row * src.yRowStride;
+                int o = base + row * w;
+                for (int col = 0; col < w; col++) {
+                    out.put(o + col, src.y.get(rowPos + col * src.yPixelStride));
+                }
+            }
+        }
+
+        if (chromaRow == null || chromaRow.length < w) {
+            chromaRow = new byte[w];
+        }
+        byte[] row = chromaRow;
+        ByteBuffer u = src.u;
+        ByteBuffer v = src.v;
+        int cw = w / 2;
+        int ps = src.uvPixelStride;
+        int uvBase = (src.top / 2) * src.uvRowStride + (src.left / 2) * ps;
+        out.position(base + w * h);
+        for (int r = 0; r < h / 2; r++) {
+            int srcPos = uvBase + r * src.uvRowStride;
+            for (int i = 0; i < cw; i++) {
+                row[2 * i] = v.get(srcPos + i * ps);
+                row[2 * i + 1] = u.get(srcPos + i * ps);
+            }
+            out.put(row, 0, cw * 2);
+        }
+    }
+
+    private byte[] scratch(int strip, int size) {
+        byte[] buf = rowScratch[strip];
+        if (buf == null || buf.length < size) {
+            buf = new byte[size];
+            rowScratch[strip] = buf;
+        }
+        return buf;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.camswap.frame;
+
+/**
+ * 分块（tile）NV21 旋转 / 镜像内核，输出写入调用方提供的缓冲区。
+ * <p>
+ * 90/270 度旋转时逐行写目标会按列读源，1080p 帧每个像素都跨一个 cache line。
+ * 这里按 16x16 的目标块遍历：一个块只触及源中 16 行 x 16 字节，读写都留在 L1 内。
+ * Chroma 以 VU 对为单位按 8x8 对（16 字节宽）分块。
+ * 镜像 / 翻转作用于旋转后的画面，用于前置摄像头。
+ */
+public final class Nv21Rotator {
+    public static final int TILE = 16;
+
+    private Nv21Rotator() {
+    }
+
+    /**
+     * 旋转后坐标 (rx, ry) 到源平面偏移的线性系数：
+     * offset = rowBase + ry * rowMul + colBase + rx * colMul
+     *
+     * @param mirror 旋转后左右镜像
+     * @param flip   旋转后上下翻转
+     * @return {rowBase, rowMul, colBase, colMul}
+     */
+    static int[] mapping(int rotation, int w, int h, int rowStride, int pixelStride, boolean mirror,
+            boolean flip) {
+        int[] m;
+        switch (rotation) {
+            case 90:
+                // out(c, r) = in(x = r, y = h - 1 - c)
+                m = new int[] { 0, pixelStride, (h - 1) * rowStride, -rowStride };
+                break;
+            case 180:
+                m = new int[] { (h - 1) * rowStride, -rowStride, (w - 1) * pixelStride, -pixelStride };
+                break;
+            case 270:
+                // out(c, r) = in(x = w - 1 - r, y = c)
+                m = new int[] { (w - 1) * pixelStride, -pixelStride, 0, rowStride };
+                break;
+            default:
+                m = new int[] { 0, rowStride, 0, pixelStride };
+                break;
+        }
+        boolean swap = rotation == 90 || rotation == 270;
+        int rotW = swap ? h : w;
+        int rotH = swap ? w : h;
+        if (mirror) {
+            m[2] += (rotW - 1) * m[3];
+            m[3] = -m[3];
+        }
+        if (flip) {
+            m[0] += (rotH - 1) * m[1];
+            m[1] = -m[1];
+        }
+        return m;
+    }
+
+    /**
+     * 连续 NV21 数组旋转，dst 长度至少 width * height * 3 / 2。
+     */
+    public static void rotate(byte[] src, int width, int height, int rotation, byte[] dst) {
+        transform(src, width, height, rotation, false, false, dst);
+    }
+
+    /**
+     * 左右镜像（不旋转）。
+     */
+    public static void mirror(byte[] src, int width, int height, byte[] dst) {
+        transform(src, width, height, 0, true, false, dst);
+    }
+
+    /**
+     * 上下翻转（不旋转）。
+     */
+    public static void flip(byte[] src, int width, int height, byte[] dst) {
+        transform(src, width, height, 0, false, true, dst);
+    }
+
+    public static void transform(byte[] src, int width, int height, int rotation, boolean mirror, boolean flip,
+            byte[] dst) {
+        int frameSize = width * height;
+        int[] ym = mapping(rotation, width, height, width, 1, mirror, flip);
+        int[] cm = mapping(rotation, width / 2, height / 2, width, 2, mirror, flip);
+        boolean swap = rotation == 90 || rotation == 270;
+        int rotW = swap ? height : width;
+        int rotH = swap ? width : height;
+        lumaTiles(src, 0, ym, dst, rotW, 0, rotH);
+        chromaTiles(src, frameSize, frameSize + 1, cm, dst, rotW, rotH);
+    }
+
+    /**
+     * 从任意步长的 YUV 平面直接旋转到 NV21。
+     */
+    public static void transform(YuvView src, int rotation, boolean mirror, boolean flip, byte[] dst) {
+        boolean swap = rotation == 90 || rotation == 270;
+        transform(src, rotation, mirror, flip, dst, 0, swap ? src.width : src.height);
+    }
+
+    /**
+     * 只写出目标帧的 [rowStart, rowEnd) 行（及对应 chroma 行），用于分条并行。
+     * rowStart 应为 {@link #TILE} 的倍数。
+     */
+    public static void transform(YuvView src, int rotation, boolean mirror, boolean flip, byte[] dst,
+            int rowStart, int rowEnd) {
+        boolean swap = rotation == 90 || rotation == 270;
+        int rotW = swap ? src.height : src.width;
+        int rotH = swap ? src.width : src.height;
+
+        int[] ym = mapping(rotation, src.width, src.height, src.yRowStride, src.yPixelStride, mirror, flip);
+        int yBase = src.top * src.yRowStride + src.left * src.yPixelStride;
+        ym[0] += yBase;
+        if (src.y.hasArray()) {
+            ym[0] += src.y.arrayOffset();
+            lumaTiles(src.y.array(), 0, ym, dst, rotW, rowStart, rowEnd);
+        } else {
+            int dstW = rotW;
+            int tileW = swap ? TILE : dstW;
+            for (int ty = rowStart; ty < rowEnd; ty += TILE) {
+                int yEnd = Math.min(ty + TILE, rowEnd);
+                for (int tx = 0; tx < dstW; tx += tileW) {
+                    int xEnd = Math.min(tx + tileW, dstW);
+                    for (int ry = ty; ry < yEnd; ry++) {
+                        int row = ym[0] + ry * ym[1] + ym[2];
+                        int out = ry * dstW;
+                        for (int rx = tx; rx < xEnd; rx++) {
+                            dst[out + rx] = src.y.get(row + rx * ym[3]);
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] cm = mapping(rotation, src.width / 2, src.height / 2, src.uvRowStride, src.uvPixelStride, mirror,
+                flip);
+        cm[0] += (src.top / 2) * src.uvRowStride + (src.left / 2) * src.uvPixelStride;
+        int frameSize = rotW * rotH;
+        int chromaW = rotW / 2;
+        int chromaEnd = Math.min(rowEnd / 2, rotH / 2);
+        int chromaTileW = swap ? TILE / 2 : chromaW;
+        for (int ty = rowStart / 2; ty < chromaEnd; ty += TILE / 2) {
+            int yEnd = Math.min(ty + TILE / 2, chromaEnd);
+            for (int tx = 0; tx < chromaW; tx += chromaTileW) {
+                int xEnd = Math.min(tx + chromaTileW, chromaW);
+                for (int ry = ty; ry < yEnd; ry++) {
+                    int row = cm[0] + ry * cm[1] + cm[2];
+                    int out = frameSize + ry * rotW;
+                    for (int rx = tx; rx < xEnd; rx++) {
+                        int offset = row + rx * cm[3];
+                        dst[out + rx * 2] = src.v.get(offset);
+                        dst[out + rx * 2 + 1] = src.u.get(offset);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void lumaTiles(byte[] src, int srcBase, int[] m, byte[] dst, int dstW, int rowStart,
+            int rowEnd) {
+        int rowBase = srcBase + m[0] + m[2];
+        int rowMul = m[1];
+        int colMul = m[3];
+        // 0/180 度时源本身按行连续，整行处理即可
+        int tileW = Math.abs(colMul) < Math.abs(rowMul) ? dstW : TILE;
+        for (int ty = rowStart; ty < rowEnd; ty += TILE) {
+            int yEnd = Math.min(ty + TILE, rowEnd);
+            for (int tx = 0; tx < dstW; tx += tileW) {
+                int xEnd = Math.min(tx + tileW, dstW);
+                for (int ry = ty; ry < yEnd; ry++) {
+                    int in = rowBase + ry * rowMul + tx * colMul;
+                    int out = ry * dstW + tx;
+                    for (int rx = tx; rx < xEnd; rx++, in += colMul) {
+                        dst[out++] = src[in];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void chromaTiles(byte[] src, int vBase, int uBase, int[] m, byte[] dst, int dstW, int dstH) {
+        int frameSize = dstW * dstH;
+        int chromaW = dstW / 2;
+        int chromaH = dstH / 2;
+        int rowMul = m[1];
+        int colMul = m[3];
+        int pairs = TILE / 2;
+        int tileW = Math.abs(colMul) < Math.abs(rowMul) ? chromaW : pairs;
+        for (int ty = 0; ty < chromaH; ty += pairs) {
+            int yEnd = Math.min(ty + pairs, chromaH);
+            for (int tx = 0; tx < chromaW; tx += tileW) {
+                int xEnd = Math.min(tx + tileW, chromaW);
+                for (int ry = ty; ry < yEnd; ry++) {
+                    int in = m[0] + m[2] + ry * rowMul + tx * colMul;
+                    int out = frameSize + ry * dstW + tx * 2;
+                    for (int rx = tx; rx < xEnd; rx++, in += colMul) {
+                        dst[out++] = src[vBase + in];
+                        dst[out++] = src[uBase + in];
+                    }
+                }
+            }
+        }
+    }
+}
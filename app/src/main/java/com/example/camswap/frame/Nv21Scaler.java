@@ -0,0 +1,261 @@
+package com.example.camswap.frame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 全整数的 NV21 旋转 + 裁剪缩放内核。
+ * <p>
+ * 每个目标行 / 列对应的源偏移与插值权重在几何（源尺寸、步长、旋转、裁剪、目标尺寸）
+ * 不变时只计算一次并缓存，逐像素循环里只剩查表和整数乘加。
+ * Luma 支持双线性与面积平均（大倍率缩小时避免锯齿），Chroma 使用双线性。
+ * 实例非线程安全。
+ */
+public final class Nv21Scaler {
+    /** 缩小倍率 >= 2 时自动使用面积平均，否则双线性 */
+    public static final int FILTER_AUTO = 0;
+    public static final int FILTER_BILINEAR = 1;
+    public static final int FILTER_AREA = 2;
+
+    /**
+     * 单轴采样表。双线性：off0/off1 + weight(0..256)；面积平均：off0 为起点，count 为覆盖的源像素数。
+     */
+    static final class Axis {
+        final int[] off0;
+        final int[] off1;
+        final int[] weight;
+        final int[] count;
+        final int step;
+        int maxCount = 1;
+
+        Axis(int n, int step, boolean area) {
+            this.step = step;
+            off0 = new int[n];
+            if (area) {
+                off1 = null;
+                weight = null;
+                count = new int[n];
+            } else {
+                off1 = new int[n];
+                weight = new int[n];
+                count = null;
+            }
+        }
+    }
+
+    /**
+     * 一种转换几何对应的全部采样表。
+     */
+    static final class Tables {
+        final int srcW, srcH, rotation, yRowStride, yPixelStride, uvRowStride, uvPixelStride, left, top;
+        final boolean mirror, flip;
+        final int cropX, cropY, cropW, cropH, dstW, dstH, filter;
+        final boolean area;
+        Axis lumaRows, lumaCols, chromaRows, chromaCols;
+        int[] recip;
+
+        Tables(YuvView src, int rotation, boolean mirror, boolean flip, int[] crop, int dstW,
+                int dstH, int filter) {
+            this.srcW = src.width;
+            this.srcH = src.height;
+            this.rotation = rotation;
+            this.mirror = mirror;
+            this.flip = flip;
+            this.yRowStride = src.yRowStride;
+            this.yPixelStride = src.yPixelStride;
+            this.uvRowStride = src.uvRowStride;
+            this.uvPixelStride = src.uvPixelStride;
+            this.left = src.left;
+            this.top = src.top;
+            this.cropX = crop[0];
+            this.cropY = crop[1];
+            this.cropW = crop[2];
+            this.cropH = crop[3];
+            this.dstW = dstW;
+            this.dstH = dstH;
+            this.filter = filter;
+            this.area = filter == FILTER_AREA
+                    || (filter == FILTER_AUTO && (cropW >= dstW * 2 || cropH >= dstH * 2));
+        }
+
+        boolean matches(YuvView src, int rotation, boolean mirror, boolean flip, int[] crop, int dstW,
+                int dstH, int filter) {
+            return srcW == src.width && srcH == src.height && this.rotation == rotation
+                    && this.mirror == mirror && this.flip == flip
+                    && yRowStride == src.yRowStride && yPixelStride == src.yPixelStride
+                    && uvRowStride == src.uvRowStride && uvPixelStride == src.uvPixelStride
+                    && left == src.left && top == src.top
+                    && cropX == crop[0] && cropY == crop[1] && cropW == crop[2] && cropH == crop[3]
+                    && this.dstW == dstW && this.dstH == dstH && this.filter == filter;
+        }
+    }
+
+    private int filter = FILTER_AUTO;
+    private Tables cached;
+
+    public void setFilter(int filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * 取得（必要时重建）当前几何的采样表。
+     */
+    Tables tables(YuvView src, int rotation, boolean mirror, boolean flip, int[] crop, int dstW,
+            int dstH) {
+        Tables t = cached;
+        if (t != null && t.matches(src, rotation, mirror, flip, crop, dstW, dstH, filter)) {
+            return t;
+        }
+        t = new Tables(src, rotation, mirror, flip, crop, dstW, dstH, filter);
+
+        int[] ym = Nv21Rotator.mapping(rotation, src.width, src.height, src.yRowStride, src.yPixelStride, mirror,
+                flip);
+        int yBase = src.top * src.yRowStride + src.left * src.yPixelStride + ym[0] + ym[2];
+        t.lumaRows = t.area ? areaAxis(t.cropY, t.cropH, dstH, yBase, ym[1])
+                : bilinearAxis(t.cropY, t.cropH, dstH, yBase, ym[1]);
+        t.lumaCols = t.area ? areaAxis(t.cropX, t.cropW, dstW, 0, ym[3])
+                : bilinearAxis(t.cropX, t.cropW, dstW, 0, ym[3]);
+        if (t.area) {
+            int maxBox = t.lumaRows.maxCount * t.lumaCols.maxCount;
+            t.recip = new int[maxBox + 1];
+            for (int n = 1; n <= maxBox; n++) {
+                t.recip[n] = (65536 + n / 2) / n;
+            }
+        }
+
+        int[] cm = Nv21Rotator.mapping(rotation, src.width / 2, src.height / 2, src.uvRowStride,
+                src.uvPixelStride, mirror, flip);
+        int cBase = (src.top / 2) * src.uvRowStride + (src.left / 2) * src.uvPixelStride + cm[0] + cm[2];
+        t.chromaRows = bilinearAxis(t.cropY / 2, t.cropH / 2, dstH / 2, cBase, cm[1]);
+        t.chromaCols = bilinearAxis(t.cropX / 2, t.cropW / 2, dstW / 2, 0, cm[3]);
+
+        cached = t;
+        return t;
+    }
+
+    private static Axis bilinearAxis(int cropStart, int cropLen, int dstLen, int base, int mul) {
+        Axis axis = new Axis(dstLen, mul, false);
+        int step = (cropLen << 16) / dstLen;
+        int max = cropStart + cropLen - 1;
+        for (int i = 0; i < dstLen; i++) {
+            int fp = (cropStart << 16) + i * step;
+            int p0 = fp >>> 16;
+            int p1 = Math.min(p0 + 1, max);
+            axis.off0[i] = base + p0 * mul;
+            axis.off1[i] = base + p1 * mul;
+            axis.weight[i] = (fp >>> 8) & 0xFF;
+        }
+        return axis;
+    }
+
+    private static Axis areaAxis(int cropStart, int cropLen, int dstLen, int base, int mul) {
+        Axis axis = new Axis(dstLen, mul, true);
+        for (int i = 0; i < dstLen; i++) {
+            int start = cropStart + (int) ((long) i * cropLen / dstLen);
+            int end = cropStart + (int) ((long) (i + 1) * cropLen / dstLen);
+            int n = Math.max(1, end - start);
+            axis.off0[i] = base + start * mul;
+            axis.count[i] = n;
+            axis.maxCount = Math.max(axis.maxCount, n);
+        }
+        return axis;
+    }
+
+    /**
+     * 按采样表写出 NV21 目标帧的 [rowStart, rowEnd) 行（及对应的 chroma 行）。
+     * 只读共享状态，不同行区间可在多个线程上并发执行。
+     */
+    void scale(YuvView src, Tables t, byte[] dst, int rowStart, int rowEnd) {
+        if (t.area) {
+            areaLuma(src.y, t, dst, rowStart, rowEnd);
+        } else {
+            bilinearLuma(src.y, t, dst, rowStart, rowEnd);
+        }
+        bilinearChroma(src.u, src.v, t, dst, rowStart / 2, Math.min(rowEnd / 2, t.dstH / 2));
+    }
+
+    private static void bilinearLuma(ByteBuffer y, Tables t, byte[] dst, int rowStart, int rowEnd) {
+        Axis rows = t.lumaRows;
+        Axis cols = t.lumaCols;
+        int[] c0 = cols.off0;
+        int[] c1 = cols.off1;
+        int[] wx = cols.weight;
+        int dstW = t.dstW;
+        for (int dy = rowStart; dy < rowEnd; dy++) {
+            int row0 = rows.off0[dy];
+            int row1 = rows.off1[dy];
+            int fy = rows.weight[dy];
+            int out = dy * dstW;
+            for (int dx = 0; dx < dstW; dx++) {
+                int fx = wx[dx];
+                int p00 = y.get(row0 + c0[dx]) & 0xFF;
+                int p01 = y.get(row0 + c1[dx]) & 0xFF;
+                int p10 = y.get(row1 + c0[dx]) & 0xFF;
+                int p11 = y.get(row1 + c1[dx]) & 0xFF;
+                int top = (p00 << 8) + (p01 - p00) * fx;
+                int bottom = (p10 << 8) + (p11 - p10) * fx;
+                dst[out + dx] = (byte) (((top << 8) + (bottom - top) * fy) >> 16);
+            }
+        }
+    }
+
+    private static void areaLuma(ByteBuffer y, Tables t, byte[] dst, int rowStart, int rowEnd) {
+        Axis rows = t.lumaRows;
+        Axis cols = t.lumaCols;
+        int rowStep = rows.step;
+        int colStep = cols.step;
+        int[] recip = t.recip;
+        int dstW = t.dstW;
+        for (int dy = rowStart; dy < rowEnd; dy++) {
+            int srcRow = rows.off0[dy];
+            int rn = rows.count[dy];
+            int out = dy * dstW;
+            for (int dx = 0; dx < dstW; dx++) {
+                int colStart = cols.off0[dx];
+                int cn = cols.count[dx];
+                int sum = 0;
+                for (int i = 0, r = srcRow; i < rn; i++, r += rowStep) {
+                    for (int j = 0, p = r + colStart; j < cn; j++, p += colStep) {
+                        sum += y.get(p) & 0xFF;
+                    }
+                }
+                dst[out + dx] = (byte) ((sum * recip[rn * cn] + 32768) >>> 16);
+            }
+        }
+    }
+
+    private static void bilinearChroma(ByteBuffer u, ByteBuffer v, Tables t, byte[] dst, int rowStart,
+            int rowEnd) {
+        Axis rows = t.chromaRows;
+        Axis cols = t.chromaCols;
+        int[] c0 = cols.off0;
+        int[] c1 = cols.off1;
+        int[] wx = cols.weight;
+        int chromaW = t.dstW / 2;
+        int base = t.dstW * t.dstH;
+        for (int cy = rowStart; cy < rowEnd; cy++) {
+            int row0 = rows.off0[cy];
+            int row1 = rows.off1[cy];
+            int fy = rows.weight[cy];
+            int out = base + cy * t.dstW;
+            for (int cx = 0; cx < chromaW; cx++) {
+                int a = row0 + c0[cx];
+                int b = row0 + c1[cx];
+                int c = row1 + c0[cx];
+                int d = row1 + c1[cx];
+                int fx = wx[cx];
+                dst[out + cx * 2] = lerp2(v.get(a), v.get(b), v.get(c), v.get(d), fx, fy);
+                dst[out + cx * 2 + 1] = lerp2(u.get(a), u.get(b), u.get(c), u.get(d), fx, fy);
+            }
+        }
+    }
+
+    private static byte lerp2(byte b00, byte b01, byte b10, byte b11, int fx, int fy) {
+        int p00 = b00 & 0xFF;
+        int p01 = b01 & 0xFF;
+        int p10 = b10 & 0xFF;
+        int p11 = b11 & 0xFF;
+        int top = (p00 << 8) + (p01 - p00) * fx;
+        int bottom = (p10 << 8) + (p11 - p10) * fx;
+        return (byte) (((top << 8) + (bottom - top) * fy) >> 16);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.camswap.frame;
+
+/**
+ * 查表的整数 NV21 → ARGB_8888 转换（BT.601 limited range，与 ImageUtils 的 RGB → YUV 系数互逆）。
+ * <p>
+ * 每个 Y / U / V 取值对应的定点分量预先算好，逐像素只剩查表、加法和一次饱和。
+ * 2x2 像素共用一组 VU，按两行一组遍历。宽高需为偶数。
+ * 不依赖任何 Android 类型。
+ */
+public final class Nv21ToArgb {
+    private static final int[] Y_TABLE = new int[256];
+    private static final int[] RV_TABLE = new int[256];
+    private static final int[] GU_TABLE = new int[256];
+    private static final int[] GV_TABLE = new int[256];
+    private static final int[] BU_TABLE = new int[256];
+
+    /** 饱和表：下标为定点结果 >> 8 再加 CLAMP_OFFSET */
+    private static final int CLAMP_OFFSET = 384;
+    private static final int[] CLAMP = new int[1024];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            // 298/256 ≈ 255/219，409/256 ≈ 1.596，100/256 ≈ 0.391，208/256 ≈ 0.813，516/256 ≈ 2.018
+            Y_TABLE[i] = 298 * (i - 16) + 128;
+            RV_TABLE[i] = 409 * (i - 128);
+            GU_TABLE[i] = -100 * (i - 128);
+            GV_TABLE[i] = -208 * (i - 128);
+            BU_TABLE[i] = 516 * (i - 128);
+        }
+        for (int i = 0; i < CLAMP.length; i++) {
+            CLAMP[i] = Math.max(0, Math.min(255, i - CLAMP_OFFSET));
+        }
+    }
+
+    private Nv21ToArgb() {
+    }
+
+    /**
+     * 将 width x height 的 NV21 帧转换为 ARGB 像素写入 argb（长度至少 width * height）。
+     */
+    public static void convert(byte[] nv21, int width, int height, int[] argb) {
+        int frameSize = width * height;
+        for (int row = 0; row < height; row += 2) {
+            int uv = frameSize + (row >> 1) * width;
+            int out0 = row * width;
+            int out1 = out0 + width;
+            for (int col = 0; col < width; col += 2, uv += 2) {
+                int v = nv21[uv] & 0xFF;
+                int u = nv21[uv + 1] & 0xFF;
+                int rd = RV_TABLE[v];
+                int gd = GU_TABLE[u] + GV_TABLE[v];
+                int bd = BU_TABLE[u];
+                argb[out0 + col] = pixel(Y_TABLE[nv21[out0 + col] & 0xFF], rd, gd, bd);
+                argb[out0 + col + 1] = pixel(Y_TABLE[nv21[out0 + col + 1] & 0xFF], rd, gd, bd);
+                argb[out1 + col] = pixel(Y_TABLE[nv21[out1 + col] & 0xFF], rd, gd, bd);
+                argb[out1 + col + 1] = pixel(Y_TABLE[nv21[out1 + col + 1] & 0xFF], rd, gd, bd);
+            }
+        }
+    }
+
+    private static int pixel(int y, int rd, int gd, int bd) {
+        int r = CLAMP[((y + rd) >> 8) + CLAMP_OFFSET];
+        int g = CLAMP[((y + gd) >> 8) + CLAMP_OFFSET];
+        int b = CLAMP[((y + bd) >> 8) + CLAMP_OFFSET];
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.camswap.frame;
+
+/**
+ * RGB 像素到 YUV420 半平面（NV12）的转换循环，不依赖 Android，可在 JVM 上基准测试。
+ * <p>
+ * 两个入口保留了各自调用方原有的行为（像素字节序、色度取样位置、Y 下限），输出逐字节不变。
+ */
+public final class RgbToYuv {
+    private RgbToYuv() {
+    }
+
+    /**
+     * ImageUtils.rgb2YCbCr420 的转换：像素低字节为 R（ABGR），Y 限制在 [16, 255]，
+     * 色度取每个 2x2 块最后写入的像素。
+     *
+     * @param yuv 长度至少 width * height * 3 / 2
+     */
+    public static void abgrToNv12(int[] pixels, int width, int height, byte[] yuv) {
+        int len = width * height;
+        int y, u, v;
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int rgb = (pixels[i * width + j]) & 0x00FFFFFF;
+                int r = rgb & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = (rgb >> 16) & 0xFF;
+                // 套用公式
+                y = ((66 * r + 129 * g + 25 * b + 128) >> 8) + 16;
+                u = ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
+                v = ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
+                y = y < 16 ? 16 : (Math.min(y, 255));
+                u = u < 0 ? 0 : (Math.min(u, 255));
+                v = v < 0 ? 0 : (Math.min(v, 255));
+                // 赋值
+                yuv[i * width + j] = (byte) y;
+                yuv[len + (i >> 1) * width + (j & ~1)] = (byte) u;
+                yuv[len + (i >> 1) * width + (j & ~1) + 1] = (byte) v;
+            }
+        }
+    }
+
+    /**
+     * ImageToVideoConverter 编码输入的转换：Bitmap.getPixels 的 ARGB 像素，BT.601，
+     * 色度取每个 2x2 块左上角像素。
+     *
+     * @param yuv 长度至少 width * height * 3 / 2
+     */
+    public static void argbToNv12(int[] pixels, int width, int height, byte[] yuv) {
+        int yIndex = 0;
+        int uvIndex = width * height;
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                int pixel = pixels[j * width + i];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+
+                // RGB to YUV (BT.601)
+                int y = ((66 * r + 129 * g + 25 * b + 128) >> 8) + 16;
+                yuv[yIndex++] = (byte) clamp(y);
+
+                // UV is sampled every 2x2 block
+                if (j % 2 == 0 && i % 2 == 0) {
+                    int u = ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
+                    int v = ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
+                    yuv[uvIndex++] = (byte) clamp(u);
+                    yuv[uvIndex++] = (byte) clamp(v);
+                }
+            }
+        }
+    }
+
+    private static int clamp(int val) {
+        return Math.max(0, Math.min(val, 255));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.camswap.frame;
+
+import java.util.concurrent.Phaser;
+
+/**
+ * 固定线程数的横条（strip）并行执行器。
+ * <p>
+ * 一帧被切成 N 条互不重叠的行区间，调用线程处理第 0 条，其余由常驻 worker 处理，
+ * 每帧一次 Phaser 屏障汇合。线程常驻、无每帧任务对象分配。
+ * 条边界按 {@link #ALIGN} 行对齐，保证 NV21 的 chroma 行与旋转分块不会跨条。
+ */
+public final class StripExecutor {
+    /** 条边界对齐行数（分块旋转的 tile 高度，且为偶数） */
+    public static final int ALIGN = Nv21Rotator.TILE;
+
+    public interface StripTask {
+        /**
+         * 处理目标帧 [rowStart, rowEnd) 行（luma 行号）。
+         *
+         * @param strip 条序号，可用于选取每条独立的暂存缓冲区
+         */
+        void run(int strip, int rowStart, int rowEnd);
+    }
+
+    private final Thread[] workers;
+    private final Phaser phaser;
+    private volatile boolean shutdown;
+    private volatile Throwable failure;
+    private StripTask task;
+    private int rows;
+
+    /**
+     * @param threads 总并行度（含调用线程），至少 2
+     */
+    public StripExecutor(int threads) {
+        if (threads < 2) {
+            throw new IllegalArgumentException("threads must be >= 2");
+        }
+        phaser = new Phaser(threads);
+        workers = new Thread[threads - 1];
+        for (int i = 0; i < workers.length; i++) {
+            final int strip = i + 1;
+            workers[i] = new Thread(() -> workerLoop(strip), "CS-Strip-" + strip);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * 按设备核心数给出默认并行度：取一半核心（大核数量的近似），限制在 2..4。
+     */
+    public static int defaultThreads() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(2, Math.min(4, cores / 2));
+    }
+
+    public int threads() {
+        return workers.length + 1;
+    }
+
+    /**
+     * 在所有条上执行 task，返回时全部条已完成。非线程安全：同一时刻只能有一个调用者。
+     */
+    public void run(StripTask task, int rows) {
+        this.task = task;
+        this.rows = rows;
+        phaser.arriveAndAwaitAdvance(); // 开始
+        try {
+            runStrip(task, 0, rows);
+        } finally {
+            phaser.arriveAndAwaitAdvance(); // 汇合
+            this.task = null;
+        }
+        Throwable t = failure;
+        if (t != null) {
+            failure = null;
+            throw new RuntimeException("strip worker failed", t);
+        }
+    }
+
+    private void workerLoop(int strip) {
+        while (true) {
+            phaser.arriveAndAwaitAdvance();
+            if (shutdown) {
+                phaser.arriveAndDeregister();
+                return;
+            }
+            try {
+                runStrip(task, strip, rows);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    private void runStrip(StripTask task, int strip, int rows) {
+        int n = threads();
+        int start = boundary(strip, n, rows);
+        int end = boundary(strip + 1, n, rows);
+        if (start < end) {
+            task.run(strip, start, end);
+        }
+    }
+
+    private static int boundary(int index, int n, int rows) {
+        if (index >= n) {
+            return rows;
+        }
+        int b = (int) ((long) rows * index / n);
+        return Math.min(rows, (b + ALIGN / 2) / ALIGN * ALIGN);
+    }
+
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        phaser.arriveAndDeregister();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.camswap.frame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * YUV 4:2:0 帧的跨步视图：Y/U/V 三个平面各自的 ByteBuffer、rowStride、pixelStride 和裁剪区域。
+ * <p>
+ * 对应 Android Image.getPlanes() + getCropRect()，也可以通过 {@link FrameFormat#view} 包装
+ * 连续的 NV21 / NV12 / I420 数组。视图只引用数据不拷贝，可复用同一实例逐帧 set。
+ */
+public final class YuvView {
+    public ByteBuffer y;
+    public ByteBuffer u;
+    public ByteBuffer v;
+    public int yRowStride;
+    public int yPixelStride = 1;
+    public int uvRowStride;
+    public int uvPixelStride;
+    public int left;
+    public int top;
+    public int width;
+    public int height;
+
+    public YuvView set(ByteBuffer y, int yRowStride, int yPixelStride, ByteBuffer u, ByteBuffer v,
+            int uvRowStride, int uvPixelStride, int left, int top, int width, int height) {
+        this.y = y;
+        this.yRowStride = yRowStride;
+        this.yPixelStride = yPixelStride;
+        this.u = u;
+        this.v = v;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * 以连续 NV21 数组作为源（VU 交错，V 在前）。
+     */
+    public YuvView setNv21(byte[] nv21, int width, int height) {
+        return FrameFormat.NV21.view(nv21, width, height, this);
+    }
+}
@@ -18,6 +18,7 @@ import java.io.FileOutputStream
 import java.util.Locale
 import com.example.camswap.ConfigManager
 import com.example.camswap.utils.ImageToVideoConverter
+import com.example.camswap.utils.PcmCache
 
 
 enum class MediaType {
@@ -213,6 +214,8 @@ class MediaManagerViewModel(application: Application) : AndroidViewModel(applica
                     } else {
                         configManager.setString(ConfigManager.KEY_SELECTED_AUDIO, item.name)
                         _uiState.update { it.copy(selectedAudioName = item.name) }
+                        // 提前解码成 PCM 缓存，被 Hook 的应用开始录音时直接映射，不用再等解码
+                        PcmCache.prepareAsync(getApplication<Application>().cacheDir, item.file)
                     }
                     loadMedia()
                 }
@@ -5,6 +5,8 @@ import android.media.MediaExtractor;
 import android.media.MediaFormat;
 import android.os.Build;
 
+import com.example.camswap.Metrics;
+
 import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -17,32 +19,30 @@ import java.util.Arrays;
  * 功能：
  * <ul>
  * <li>使用 MediaExtractor + MediaCodec 解码音频文件到 PCM 16-bit</li>
- * <li>缓存解码后的 PCM 数据在内存中</li>
+ * <li>优先映射模块进程预先解码好的 {@link PcmCache} 文件，多个进程共享页缓存、无需解码</li>
+ * <li>短音频整段解码缓存在内存中（{@link PcmSnapshot}）；超过
+ * {@link com.example.camswap.ConfigManager#KEY_AUDIO_STREAM_THRESHOLD_S} 的长音频改为
+ * {@link PcmStream} 边解码边播放，只占几秒的环形缓冲区</li>
  * <li>根据目标 AudioRecord 参数进行重采样和声道转换</li>
  * <li>支持循环播放</li>
- * <li>线程安全</li>
+ * <li>线程安全：准备好后整体发布 {@link PcmSource}，读路径不加全局锁，
+ * 加载新文件期间 AudioRecord.read 继续读旧数据而不是阻塞</li>
  * </ul>
  */
 public class AudioDataProvider {
 
     private static final String TAG = "【CS】[AudioData]";
 
-    // 解码后的 PCM 16-bit 数据（原始格式）
-    private static short[] pcmData = null;
-    private static int pcmSampleRate = 0;
-    private static int pcmChannels = 0;
-
-    // 播放位置（以帧为单位，一帧 = 所有声道的一个采样点）
-    private static long playbackPosition = 0;
+    // 当前发布的 PCM 数据源（原始格式）：准备好后整体替换，读路径只读一次引用
+    private static volatile PcmSource source = null;
 
-    // 音频时长（毫秒），解码后计算
-    private static long audioDurationMs = 0;
+    // 默认超过 60 秒的音频走流式解码
+    private static final int DEFAULT_STREAM_THRESHOLD_S = 60;
 
-    // 当前加载的文件路径
-    private static String currentFilePath = null;
-
-    // 同步锁
-    private static final Object lock = new Object();
+    // 只串行化解码，读路径不使用
+    private static final Object loadLock = new Object();
+    private static final Metrics.Counter filledFrames = Metrics.counter("audio.frames");
+    private static final Metrics.Histogram fillUs = Metrics.histogram("audio.fill_us");
 
     // 默认音频文件名
     public static final String DEFAULT_AUDIO_NAME = "Mic.mp3";
@@ -86,7 +86,7 @@ public class AudioDataProvider {
     }
 
     /**
-     * 加载并解码音频文件到内存。如果文件已加载且未改变，跳过解码。
+     * 加载并解码音频文件到内存（长音频改为启动流式解码）。如果文件已加载且未改变，跳过解码。
      *
      * @return true 如果数据可用
      */
@@ -96,9 +96,10 @@ public class AudioDataProvider {
             return false;
         }
 
-        synchronized (lock) {
+        synchronized (loadLock) {
             // 已加载同一文件
-            if (filePath.equals(currentFilePath) && pcmData != null) {
+            PcmSource current = source;
+            if (current != null && filePath.equals(current.filePath)) {
                 return true;
             }
 
@@ -109,6 +110,15 @@ public class AudioDataProvider {
                 return false;
             }
 
+            // 模块进程已解码过的直接映射缓存文件，不占堆也不用等解码；
+            // 还没有缓存时 Provider 立即返回并在后台生成，这次照常解码或流式播放
+            PcmSnapshot cached = loadCached(filePath, isVirtualPath, file);
+            if (cached != null) {
+                publish(cached);
+                LogUtil.log(TAG + " 使用 PCM 缓存: " + filePath + " (" + (cached.durationMs / 1000) + "s)");
+                return true;
+            }
+
             LogUtil.log(TAG + " 开始解码音频: " + filePath);
 
             MediaExtractor extractor = null;
@@ -150,18 +160,35 @@ public class AudioDataProvider {
                 extractor.selectTrack(audioTrack);
                 MediaFormat format = extractor.getTrackFormat(audioTrack);
                 String mime = format.getString(MediaFormat.KEY_MIME);
-                pcmSampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
-                pcmChannels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                int pcmSampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                int pcmChannels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+
+                long durationUs = format.containsKey(MediaFormat.KEY_DURATION)
+                        ? format.getLong(MediaFormat.KEY_DURATION) : -1;
 
                 LogUtil.log(TAG + " 音频格式: mime=" + mime
                         + " sampleRate=" + pcmSampleRate
-                        + " channels=" + pcmChannels);
+                        + " channels=" + pcmChannels
+                        + " durationUs=" + durationUs);
 
                 // 创建解码器
                 codec = MediaCodec.createDecoderByType(mime);
                 codec.configure(format, null, null, 0);
                 codec.start();
 
+                if (durationUs > streamThresholdUs()) {
+                    // 长音频：解码器交给 PcmStream 的后台线程，这里不再释放
+                    PcmStream stream = new PcmStream(filePath, pcmSampleRate, pcmChannels, durationUs / 1000);
+                    stream.start(extractor, codec, providerPfd);
+                    extractor = null;
+                    codec = null;
+                    providerPfd = null;
+                    publish(stream);
+                    LogUtil.log(TAG + " 流式播放: " + (durationUs / 1000000) + "s, 环形缓冲 "
+                            + PcmStream.RING_SECONDS + "s");
+                    return true;
+                }
+
                 // 解码循环
                 // 预分配缓冲区，初始 1MB（约 5 秒 44100Hz 16-bit 立体声）
                 short[] tempBuffer = new short[512 * 1024];
@@ -236,24 +263,25 @@ public class AudioDataProvider {
                     }
                 }
 
-                // 裁剪到实际大小
-                pcmData = Arrays.copyOf(tempBuffer, totalSamples);
-                playbackPosition = 0;
-                currentFilePath = filePath;
+                if (totalSamples == 0) {
+                    LogUtil.log(TAG + " 解码结果为空");
+                    publish(null);
+                    return false;
+                }
 
-                // 计算音频时长
-                int frameCount = totalSamples / pcmChannels;
-                audioDurationMs = (long) frameCount * 1000 / pcmSampleRate;
+                // 裁剪到实际大小后一次性发布，各游标在下一次读取时从头开始
+                PcmSnapshot loaded = new PcmSnapshot(filePath, Arrays.copyOf(tempBuffer, totalSamples),
+                        pcmSampleRate, pcmChannels);
+                publish(loaded);
 
                 LogUtil.log(TAG + " 解码完成: " + totalSamples + " samples ("
-                        + (audioDurationMs / 1000) + "s, " + audioDurationMs + "ms)");
+                        + (loaded.durationMs / 1000) + "s, " + loaded.durationMs + "ms)");
 
                 return true;
 
             } catch (Exception e) {
                 LogUtil.log(TAG + " 解码失败: " + e);
-                pcmData = null;
-                currentFilePath = null;
+                publish(null);
                 return false;
             } finally {
                 try {
@@ -283,408 +311,219 @@ public class AudioDataProvider {
      * 检查音频数据是否已就绪
      */
     public static boolean isReady() {
-        synchronized (lock) {
-            return pcmData != null && pcmData.length > 0;
-        }
+        return source != null;
     }
 
     /**
      * 获取当前已加载的音频文件路径
      */
     public static String getCurrentFilePath() {
-        synchronized (lock) {
-            return currentFilePath;
-        }
-    }
-
-    /**
-     * 重置播放位置
-     */
-    public static void resetPosition() {
-        synchronized (lock) {
-            playbackPosition = 0;
-        }
+        PcmSource s = source;
+        return s != null ? s.filePath : null;
     }
 
     /**
      * 释放缓存数据
      */
     public static void release() {
-        synchronized (lock) {
-            pcmData = null;
-            currentFilePath = null;
-            playbackPosition = 0;
-            audioDurationMs = 0;
-        }
+        publish(null);
     }
 
     /**
      * 获取音频时长（毫秒）
      */
     public static long getDurationMs() {
-        synchronized (lock) {
-            return audioDurationMs;
-        }
+        PcmSource s = source;
+        return s != null ? s.durationMs : 0;
     }
 
     /**
      * 获取源音频采样率
      */
     public static int getSampleRate() {
-        return pcmSampleRate;
+        PcmSource s = source;
+        return s != null ? s.sampleRate : 0;
     }
 
     /**
      * 获取源音频声道数
      */
     public static int getChannelCount() {
-        return pcmChannels;
+        PcmSource s = source;
+        return s != null ? s.channels : 0;
     }
 
-    // ================================================================
-    // 数据填充方法 — 对应 AudioRecord.read() 的各种重载
-    // ================================================================
-
     /**
-     * 填充 byte[] 缓冲区（对应 AudioRecord.read(byte[], int, int)）
-     * PCM 16-bit 格式：每个 sample 占 2 字节，小端序
-     *
-     * @param buffer           目标缓冲区
-     * @param offset           写入偏移
-     * @param size             要填充的字节数
-     * @param targetSampleRate 目标采样率
-     * @param targetChannels   目标声道数
-     * @return 实际填充的字节数
+     * 媒体目录中的文件和 Provider 视频的音轨可以由模块进程提供 PCM 缓存，其他路径返回 null。
      */
-    public static int fillBytes(byte[] buffer, int offset, int size,
-            int targetSampleRate, int targetChannels) {
-        synchronized (lock) {
-            if (pcmData == null || pcmData.length == 0)
-                return 0;
-
-            // 字节数 → sample 数（16-bit = 2 bytes per sample）
-            int samplesNeeded = size / 2;
-            short[] converted = getConvertedSamples(samplesNeeded, targetSampleRate, targetChannels);
-
-            int bytesToFill = Math.min(size, converted.length * 2);
-            // short[] → byte[] (小端序)
-            int shortsToWrite = bytesToFill / 2;
-            for (int i = 0; i < shortsToWrite; i++) {
-                buffer[offset + i * 2] = (byte) (converted[i] & 0xFF);
-                buffer[offset + i * 2 + 1] = (byte) ((converted[i] >> 8) & 0xFF);
+    private static PcmSnapshot loadCached(String filePath, boolean isVirtualPath, File file) {
+        String name;
+        if (isVirtualPath) {
+            name = null;
+        } else if (new File(VideoManager.video_path).equals(file.getParentFile())) {
+            name = file.getName();
+        } else {
+            return null;
+        }
+        android.os.ParcelFileDescriptor pfd = VideoManager.getPcmPFD(name);
+        if (pfd == null) {
+            return null;
+        }
+        try {
+            return PcmCache.map(filePath, pfd);
+        } catch (Exception e) {
+            LogUtil.log(TAG + " 映射 PCM 缓存失败: " + e);
+            return null;
+        } finally {
+            try {
+                pfd.close();
+            } catch (Exception ignored) {
             }
-            return bytesToFill;
         }
     }
 
-    /**
-     * 填充 short[] 缓冲区（对应 AudioRecord.read(short[], int, int)）
-     *
-     * @param buffer           目标缓冲区
-     * @param offset           写入偏移
-     * @param size             要填充的 short 数
-     * @param targetSampleRate 目标采样率
-     * @param targetChannels   目标声道数
-     * @return 实际填充的 short 数
-     */
-    public static int fillShorts(short[] buffer, int offset, int size,
-            int targetSampleRate, int targetChannels) {
-        synchronized (lock) {
-            if (pcmData == null || pcmData.length == 0)
-                return 0;
-
-            short[] converted = getConvertedSamples(size, targetSampleRate, targetChannels);
-            int toFill = Math.min(size, converted.length);
-            System.arraycopy(converted, 0, buffer, offset, toFill);
-            return toFill;
+    private static void publish(PcmSource next) {
+        PcmSource old = source;
+        source = next;
+        if (old instanceof PcmStream && old != next) {
+            ((PcmStream) old).close();
         }
     }
 
-    /**
-     * 填充 float[] 缓冲区（对应 AudioRecord.read(float[], int, int, int)）
-     *
-     * @param buffer           目标缓冲区
-     * @param offset           写入偏移
-     * @param size             要填充的 float 数
-     * @param targetSampleRate 目标采样率
-     * @param targetChannels   目标声道数
-     * @return 实际填充的 float 数
-     */
-    public static int fillFloats(float[] buffer, int offset, int size,
-            int targetSampleRate, int targetChannels) {
-        synchronized (lock) {
-            if (pcmData == null || pcmData.length == 0)
-                return 0;
-
-            short[] converted = getConvertedSamples(size, targetSampleRate, targetChannels);
-            int toFill = Math.min(size, converted.length);
-            for (int i = 0; i < toFill; i++) {
-                // short (-32768~32767) → float (-1.0~1.0)
-                buffer[offset + i] = converted[i] / 32768.0f;
-            }
-            return toFill;
+    private static long streamThresholdUs() {
+        int seconds = DEFAULT_STREAM_THRESHOLD_S;
+        try {
+            seconds = VideoManager.getConfig().getInt(
+                    com.example.camswap.ConfigManager.KEY_AUDIO_STREAM_THRESHOLD_S, DEFAULT_STREAM_THRESHOLD_S);
+        } catch (Exception ignored) {
         }
+        return seconds * 1000000L;
     }
 
+    // ================================================================
+    // 数据填充方法 — 对应 AudioRecord.read() 的各种重载
+    // 每个录音实例（AudioRecord / AAudio stream / OpenSL 录音器）持有自己的 PlaybackCursor，
+    // 多个并发录音各自推进、互不抢位置。positionMs 为 LOOP 时循环播放（替换模式），
+    // 否则按视频位置读取（方案 C）。
+    // 重采样结果直接写入调用方缓冲区；byte / float / ByteBuffer 目标经游标复用的 short 暂存区批量转换，
+    // 每次 read 不再分配数组。读取只锁所用游标，不会被 loadAudioFile 的解码阻塞
+    // ================================================================
+
+    /** positionMs 取此值表示按游标自身位置循环播放 */
+    public static final long LOOP = -1;
+
     /**
-     * 填充 ByteBuffer 缓冲区（对应 AudioRecord.read(ByteBuffer, int) 和 read(ByteBuffer,
-     * int, int)）
+     * 填充 byte[] 缓冲区（对应 AudioRecord.read(byte[], int, int)）
+     * PCM 16-bit 格式：每个 sample 占 2 字节，小端序
      *
-     * @param buffer           目标 ByteBuffer
+     * @param cursor           所属录音的播放游标
+     * @param buffer           目标缓冲区
+     * @param offset           写入偏移
      * @param size             要填充的字节数
      * @param targetSampleRate 目标采样率
      * @param targetChannels   目标声道数
+     * @param positionMs       视频播放位置，或 {@link #LOOP}
      * @return 实际填充的字节数
      */
-    public static int fillByteBuffer(ByteBuffer buffer, int size,
-            int targetSampleRate, int targetChannels) {
-        synchronized (lock) {
-            if (pcmData == null || pcmData.length == 0)
-                return 0;
-
-            int samplesNeeded = size / 2;
-            short[] converted = getConvertedSamples(samplesNeeded, targetSampleRate, targetChannels);
-
-            int bytesToFill = Math.min(size, converted.length * 2);
-            ByteBuffer temp = ByteBuffer.allocate(bytesToFill).order(ByteOrder.LITTLE_ENDIAN);
-            for (int i = 0; i < converted.length && i * 2 < bytesToFill; i++) {
-                temp.putShort(converted[i]);
-            }
-            temp.flip();
-            buffer.put(temp);
-            return bytesToFill;
-        }
-    }
-
-    // ================================================================
-    // 按时间位置填充方法 — 方案 C 视频同步专用
-    // ================================================================
-
-    /**
-     * 按绝对时间位置填充 byte[]（方案 C）
-     */
-    public static int fillBytesAtPosition(byte[] buffer, int offset, int size,
+    public static int fillBytes(PlaybackCursor cursor, byte[] buffer, int offset, int size,
             int targetSampleRate, int targetChannels, long positionMs) {
-        synchronized (lock) {
-            if (pcmData == null || pcmData.length == 0)
-                return 0;
-            int samplesNeeded = size / 2;
-            short[] converted = getConvertedSamplesAtPosition(samplesNeeded, targetSampleRate, targetChannels,
-                    positionMs);
-            int bytesToFill = Math.min(size, converted.length * 2);
-            int shortsToWrite = bytesToFill / 2;
-            for (int i = 0; i < shortsToWrite; i++) {
-                buffer[offset + i * 2] = (byte) (converted[i] & 0xFF);
-                buffer[offset + i * 2 + 1] = (byte) ((converted[i] >> 8) & 0xFF);
-            }
-            return bytesToFill;
+        PcmSource pcm = source;
+        if (pcm == null)
+            return 0;
+        // 字节数 → sample 数（16-bit = 2 bytes per sample）
+        int samples = size / 2;
+        synchronized (cursor) {
+            short[] converted = cursor.scratch(samples);
+            convert(cursor, pcm, converted, 0, samples, targetSampleRate, targetChannels, positionMs);
+            writeBytes(converted, samples, buffer, offset);
         }
+        return samples * 2;
     }
 
     /**
-     * 按绝对时间位置填充 short[]（方案 C）
+     * 填充 short[] 缓冲区（对应 AudioRecord.read(short[], int, int)），size 为 short 数
      */
-    public static int fillShortsAtPosition(short[] buffer, int offset, int size,
+    public static int fillShorts(PlaybackCursor cursor, short[] buffer, int offset, int size,
             int targetSampleRate, int targetChannels, long positionMs) {
-        synchronized (lock) {
-            if (pcmData == null || pcmData.length == 0)
-                return 0;
-            short[] converted = getConvertedSamplesAtPosition(size, targetSampleRate, targetChannels, positionMs);
-            int toFill = Math.min(size, converted.length);
-            System.arraycopy(converted, 0, buffer, offset, toFill);
-            return toFill;
+        PcmSource pcm = source;
+        if (pcm == null)
+            return 0;
+        synchronized (cursor) {
+            convert(cursor, pcm, buffer, offset, size, targetSampleRate, targetChannels, positionMs);
         }
+        return size;
     }
 
     /**
-     * 按绝对时间位置填充 float[]（方案 C）
+     * 填充 float[] 缓冲区（对应 AudioRecord.read(float[], int, int, int)），size 为 float 数
      */
-    public static int fillFloatsAtPosition(float[] buffer, int offset, int size,
+    public static int fillFloats(PlaybackCursor cursor, float[] buffer, int offset, int size,
             int targetSampleRate, int targetChannels, long positionMs) {
-        synchronized (lock) {
-            if (pcmData == null || pcmData.length == 0)
-                return 0;
-            short[] converted = getConvertedSamplesAtPosition(size, targetSampleRate, targetChannels, positionMs);
-            int toFill = Math.min(size, converted.length);
-            for (int i = 0; i < toFill; i++) {
+        PcmSource pcm = source;
+        if (pcm == null)
+            return 0;
+        synchronized (cursor) {
+            short[] converted = cursor.scratch(size);
+            convert(cursor, pcm, converted, 0, size, targetSampleRate, targetChannels, positionMs);
+            for (int i = 0; i < size; i++) {
+                // short (-32768~32767) → float (-1.0~1.0)
                 buffer[offset + i] = converted[i] / 32768.0f;
             }
-            return toFill;
         }
+        return size;
     }
 
     /**
-     * 按绝对时间位置填充 ByteBuffer（方案 C）
+     * 填充 ByteBuffer 缓冲区（对应 AudioRecord.read(ByteBuffer, int) 和 read(ByteBuffer,
+     * int, int)），从 position 开始写入并前移 position
      */
-    public static int fillByteBufferAtPosition(ByteBuffer buffer, int size,
+    public static int fillByteBuffer(PlaybackCursor cursor, ByteBuffer buffer, int size,
             int targetSampleRate, int targetChannels, long positionMs) {
-        synchronized (lock) {
-            if (pcmData == null || pcmData.length == 0)
-                return 0;
-            int samplesNeeded = size / 2;
-            short[] converted = getConvertedSamplesAtPosition(samplesNeeded, targetSampleRate, targetChannels,
-                    positionMs);
-            int bytesToFill = Math.min(size, converted.length * 2);
-            ByteBuffer temp = ByteBuffer.allocate(bytesToFill).order(ByteOrder.LITTLE_ENDIAN);
-            for (int i = 0; i < converted.length && i * 2 < bytesToFill; i++) {
-                temp.putShort(converted[i]);
-            }
-            temp.flip();
-            buffer.put(temp);
-            return bytesToFill;
+        PcmSource pcm = source;
+        if (pcm == null)
+            return 0;
+        int samples = size / 2;
+        synchronized (cursor) {
+            short[] converted = cursor.scratch(samples);
+            convert(cursor, pcm, converted, 0, samples, targetSampleRate, targetChannels, positionMs);
+            ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            view.asShortBuffer().put(converted, 0, samples);
         }
+        buffer.position(buffer.position() + samples * 2);
+        return samples * 2;
     }
 
     // ================================================================
     // 内部方法
     // ================================================================
 
-    /**
-     * 获取经过重采样和声道转换后的 PCM 数据。
-     * 调用者需持有 lock。
-     * playbackPosition 以帧为单位（一帧 = 所有声道的一个采样点）。
-     *
-     * @param samplesNeeded    需要的 sample 数量（目标格式的 sample，包含声道）
-     * @param targetSampleRate 目标采样率
-     * @param targetChannels   目标声道数
-     * @return 转换后的 short 数组
-     */
-    private static short[] getConvertedSamples(int samplesNeeded,
-            int targetSampleRate, int targetChannels) {
-        if (pcmData == null || pcmData.length == 0) {
-            return new short[0];
-        }
-
-        // 源数据的帧数（一帧 = 所有声道的一个采样点）
-        int srcFrameCount = pcmData.length / pcmChannels;
-
-        // 目标的帧数（向上取整，确保覆盖所有请求的样本）
-        int targetFrameCount = (samplesNeeded + targetChannels - 1) / targetChannels;
-        if (targetFrameCount <= 0)
-            targetFrameCount = 1;
-
-        short[] result = new short[targetFrameCount * targetChannels];
-
-        // 计算重采样比率
-        double ratio = (double) pcmSampleRate / targetSampleRate;
-
-        for (int frame = 0; frame < targetFrameCount; frame++) {
-            // playbackPosition 已经是帧单位，直接加 frame 偏移
-            double srcFramePos = (playbackPosition + frame) * ratio;
-            long srcFrameIndex = (long) srcFramePos % srcFrameCount;
-            double frac = srcFramePos - (long) srcFramePos;
-
-            // 下一帧（用于线性插值）
-            long nextFrameIndex = (srcFrameIndex + 1) % srcFrameCount;
-
-            for (int ch = 0; ch < targetChannels; ch++) {
-                // 源声道映射
-                int srcCh = ch % pcmChannels;
-
-                int idx1 = (int) (srcFrameIndex * pcmChannels + srcCh);
-                int idx2 = (int) (nextFrameIndex * pcmChannels + srcCh);
-
-                // 边界保护
-                if (idx1 >= pcmData.length)
-                    idx1 = pcmData.length - 1;
-                if (idx2 >= pcmData.length)
-                    idx2 = pcmData.length - 1;
-                if (idx1 < 0)
-                    idx1 = 0;
-                if (idx2 < 0)
-                    idx2 = 0;
-
-                // 线性插值
-                short s1 = pcmData[idx1];
-                short s2 = pcmData[idx2];
-                result[frame * targetChannels + ch] = (short) (s1 + (s2 - s1) * frac);
-            }
-        }
-
-        // 更新播放位置（以帧为单位）
-        playbackPosition += targetFrameCount;
-        // 循环：源数据对应的目标帧总数
-        long totalTargetFrames = (long) Math.ceil(srcFrameCount / ratio);
-        if (totalTargetFrames > 0) {
-            playbackPosition = playbackPosition % totalTargetFrames;
-        }
-
-        return result;
+    /** short → 小端 byte[]，经 ShortBuffer 视图批量写入 */
+    private static void writeBytes(short[] src, int samples, byte[] dst, int offset) {
+        ByteBuffer.wrap(dst, offset, samples * 2).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer()
+                .put(src, 0, samples);
     }
 
-    // ================================================================
-    // 帧偏移追踪 — 解决 positionMs 更新频率低于 read() 调用频率的问题
-    // 当 MediaPlayer.getCurrentPosition() 在多次 read() 之间返回相同的值时，
-    // 使用累积帧偏移确保音频数据持续推进，避免重复读取产生电流声。
-    // ================================================================
-    private static long lastSyncPositionMs = -1;
-    private static long accumulatedFrameOffset = 0;
-
     /**
-     * 根据绝对时间位置获取 PCM 数据（方案 C 专用，不更新 playbackPosition）。
-     * 调用者需持有 lock。
-     *
-     * @param samplesNeeded    需要的 sample 数量
-     * @param targetSampleRate 目标采样率
-     * @param targetChannels   目标声道数
-     * @param positionMs       绝对时间位置（毫秒）
-     * @return 转换后的 short 数组
+     * 经过重采样和声道转换后的 PCM 写入 dst[offset, offset + samples)。调用者需持有 cursor 的监视器。
      */
-    private static short[] getConvertedSamplesAtPosition(int samplesNeeded,
-            int targetSampleRate, int targetChannels,
-            long positionMs) {
-        if (pcmData == null || pcmData.length == 0) {
-            return new short[0];
-        }
-
-        int srcFrameCount = pcmData.length / pcmChannels;
-        int targetFrameCount = (samplesNeeded + targetChannels - 1) / targetChannels;
-        if (targetFrameCount <= 0)
-            targetFrameCount = 1;
-
-        short[] result = new short[targetFrameCount * targetChannels];
-        double ratio = (double) pcmSampleRate / targetSampleRate;
-
-        // 帧偏移追踪：当 positionMs 与上次相同时，累积偏移量持续推进
-        if (positionMs != lastSyncPositionMs) {
-            // positionMs 变化了 — 重置累积偏移
-            lastSyncPositionMs = positionMs;
-            accumulatedFrameOffset = 0;
-        }
-
-        // 将毫秒位置转换为源帧位置，加上累积偏移
-        long baseSrcFrame = (long) (positionMs / 1000.0 * pcmSampleRate);
-        long offsetInSrcFrames = (long) (accumulatedFrameOffset * ratio);
-        long startSrcFrame = (baseSrcFrame + offsetInSrcFrames) % srcFrameCount;
-
-        // 更新累积偏移（以目标帧为单位）
-        accumulatedFrameOffset += targetFrameCount;
-
-        for (int frame = 0; frame < targetFrameCount; frame++) {
-            double srcFramePos = (startSrcFrame + frame * ratio);
-            long srcFrameIndex = (long) srcFramePos % srcFrameCount;
-            double frac = srcFramePos - (long) srcFramePos;
-            long nextFrameIndex = (srcFrameIndex + 1) % srcFrameCount;
-
-            for (int ch = 0; ch < targetChannels; ch++) {
-                int srcCh = ch % pcmChannels;
-                int idx1 = (int) (srcFrameIndex * pcmChannels + srcCh);
-                int idx2 = (int) (nextFrameIndex * pcmChannels + srcCh);
-                if (idx1 >= pcmData.length)
-                    idx1 = pcmData.length - 1;
-                if (idx2 >= pcmData.length)
-                    idx2 = pcmData.length - 1;
-                if (idx1 < 0)
-                    idx1 = 0;
-                if (idx2 < 0)
-                    idx2 = 0;
-
-                short s1 = pcmData[idx1];
-                short s2 = pcmData[idx2];
-                result[frame * targetChannels + ch] = (short) (s1 + (s2 - s1) * frac);
-            }
+    private static void convert(PlaybackCursor cursor, PcmSource pcm, short[] dst, int offset, int samples,
+            int targetSampleRate, int targetChannels, long positionMs) {
+        long start = System.nanoTime();
+        int frames;
+        if (pcm instanceof PcmStream) {
+            PcmStream stream = (PcmStream) pcm;
+            frames = positionMs == LOOP
+                    ? cursor.fill(stream, dst, offset, samples, targetSampleRate, targetChannels)
+                    : cursor.fillAtPosition(stream, dst, offset, samples, targetSampleRate, targetChannels,
+                            positionMs);
+        } else {
+            PcmSnapshot snapshot = (PcmSnapshot) pcm;
+            frames = positionMs == LOOP
+                    ? cursor.fill(snapshot, dst, offset, samples, targetSampleRate, targetChannels)
+                    : cursor.fillAtPosition(snapshot, dst, offset, samples, targetSampleRate, targetChannels,
+                            positionMs);
         }
-
-        return result;
+        fillUs.recordSinceNs(start);
+        filledFrames.add(frames);
     }
 }
@@ -12,6 +12,8 @@ import android.media.MediaCodecList;
 import android.media.MediaFormat;
 import android.media.MediaMuxer;
 
+import com.example.camswap.frame.RgbToYuv;
+
 import java.io.File;
 import java.nio.ByteBuffer;
 
@@ -276,34 +278,8 @@ public class ImageToVideoConverter {
             int[] pixels = new int[width * height];
             bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
 
-            int ySize = width * height;
-            int uvSize = ySize / 2; // NV12: interleaved UV
-            byte[] yuv = new byte[ySize + uvSize];
-
-            int yIndex = 0;
-            int uvIndex = ySize;
-
-            for (int j = 0; j < height; j++) {
-                for (int i = 0; i < width; i++) {
-                    int pixel = pixels[j * width + i];
-                    int r = (pixel >> 16) & 0xFF;
-                    int g = (pixel >> 8) & 0xFF;
-                    int b = pixel & 0xFF;
-
-                    // RGB to YUV (BT.601)
-                    int y = ((66 * r + 129 * g + 25 * b + 128) >> 8) + 16;
-                    int u = ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
-                    int v = ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
-
-                    yuv[yIndex++] = (byte) clamp(y, 0, 255);
-
-                    // UV is sampled every 2x2 block
-                    if (j % 2 == 0 && i % 2 == 0) {
-                        yuv[uvIndex++] = (byte) clamp(u, 0, 255);
-                        yuv[uvIndex++] = (byte) clamp(v, 0, 255);
-                    }
-                }
-            }
+            byte[] yuv = new byte[width * height * 3 / 2];
+            RgbToYuv.argbToNv12(pixels, width, height, yuv);
             return yuv;
         } catch (Exception e) {
             LogUtil.log("【CS】【Converter】bitmapToNV12 异常: " + e.getMessage());
@@ -311,10 +287,6 @@ public class ImageToVideoConverter {
         }
     }
 
-    private static int clamp(int val, int min, int max) {
-        return Math.max(min, Math.min(val, max));
-    }
-
     /**
      * 查找设备上的 H.264 编码器
      */
@@ -3,6 +3,8 @@ package com.example.camswap.utils;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 
+import com.example.camswap.frame.RgbToYuv;
+
 public class ImageUtils {
 
     // Origin: https://blog.csdn.net/jacke121/article/details/73888732
@@ -11,29 +13,9 @@ public class ImageUtils {
     }
 
     public static byte[] rgb2YCbCr420(int[] pixels, int width, int height) {
-        int len = width * height;
         // yuv格式数组大小，y亮度占len长度，u,v各占len/4长度。
-        byte[] yuv = new byte[len * 3 / 2];
-        int y, u, v;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                int rgb = (pixels[i * width + j]) & 0x00FFFFFF;
-                int r = rgb & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = (rgb >> 16) & 0xFF;
-                // 套用公式
-                y = ((66 * r + 129 * g + 25 * b + 128) >> 8) + 16;
-                u = ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
-                v = ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
-                y = y < 16 ? 16 : (Math.min(y, 255));
-                u = u < 0 ? 0 : (Math.min(u, 255));
-                v = v < 0 ? 0 : (Math.min(v, 255));
-                // 赋值
-                yuv[i * width + j] = (byte) y;
-                yuv[len + (i >> 1) * width + (j & ~1)] = (byte) u;
-                yuv[len + +(i >> 1) * width + (j & ~1) + 1] = (byte) v;
-            }
-        }
+        byte[] yuv = new byte[width * height * 3 / 2];
+        RgbToYuv.abgrToNv12(pixels, width, height, yuv);
         return yuv;
     }
 
@@ -2,14 +2,222 @@ package com.example.camswap.utils;
 
 import android.util.Log;
 
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模块日志。
+ * <p>
+ * 输出目标（XposedBridge.log，不可用时 android.util.Log）在类加载时解析一次，之后不再反射。
+ * 调用线程只做级别判断、按标签限流和入队，由后台 “CS-Log” 线程顺序写出；
+ * 队列满时丢弃并在下一条日志前报告丢弃数，解码 / 音频线程不会被日志 I/O 阻塞。
+ * <p>
+ * 标签取自消息前缀 “【CS】【Tag】” 中的 Tag；同一标签每秒最多 {@link #RATE_PER_SEC} 条
+ * （可突发 {@link #BURST} 条），超出部分计数后丢弃。WARN 及以上不限流。
+ */
 public class LogUtil {
+    public static final int DEBUG = Log.DEBUG;
+    public static final int INFO = Log.INFO;
+    public static final int WARN = Log.WARN;
+    public static final int ERROR = Log.ERROR;
+
+    static final int BURST = 20;
+    static final int RATE_PER_SEC = 10;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final String ANDROID_TAG = "LSPosed-Bridge";
+
+    private interface Sink {
+        void write(int level, String message);
+    }
+
+    /** 单独的类：只有确认 XposedBridge 存在时才会被加载和链接 */
+    private static final class XposedSink implements Sink {
+        @Override
+        public void write(int level, String message) {
+            de.robv.android.xposed.XposedBridge.log(message);
+        }
+    }
+
+    private static final class AndroidSink implements Sink {
+        @Override
+        public void write(int level, String message) {
+            Log.println(level, ANDROID_TAG, message);
+        }
+    }
+
+    private static final Sink sink = resolveSink();
+    private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final Map<String, TagLimiter> limiters = new ConcurrentHashMap<>();
+    private static final AtomicInteger dropped = new AtomicInteger();
+    private static volatile int minLevel = INFO;
+    private static volatile Thread writer;
+
+    private static final class Entry {
+        final int level;
+        final String message;
+
+        Entry(int level, String message) {
+            this.level = level;
+            this.message = message;
+        }
+    }
+
+    private static Sink resolveSink() {
+        try {
+            Class.forName("de.robv.android.xposed.XposedBridge");
+            return new XposedSink();
+        } catch (Throwable t) {
+            return new AndroidSink();
+        }
+    }
+
+    /**
+     * 同一标签的令牌桶。
+     */
+    static final class TagLimiter {
+        private final int burst;
+        private final long refillNs;
+        private long tokens;
+        private long lastNs;
+        private int suppressed;
+
+        TagLimiter(int burst, int perSecond, long nowNs) {
+            this.burst = burst;
+            this.refillNs = 1_000_000_000L / perSecond;
+            this.tokens = burst;
+            this.lastNs = nowNs;
+        }
+
+        /**
+         * @return 允许输出时返回此前被抑制的条数（≥ 0），否则返回 -1
+         */
+        synchronized int tryAcquire(long nowNs) {
+            long refill = (nowNs - lastNs) / refillNs;
+            if (refill > 0) {
+                tokens = Math.min(burst, tokens + refill);
+                lastNs += refill * refillNs;
+            }
+            if (tokens == 0) {
+                suppressed++;
+                return -1;
+            }
+            tokens--;
+            int n = suppressed;
+            suppressed = 0;
+            return n;
+        }
+    }
+
+    /**
+     * 从 “【CS】【Tag】...” 取 Tag；没有第二个标签时取消息开头一段，近似区分调用点。
+     */
+    static String tagOf(String message) {
+        int start = message.startsWith("【CS】") ? 4 : 0;
+        if (message.startsWith("【", start)) {
+            int end = message.indexOf('】', start + 1);
+            if (end > 0 && end - start <= 32) {
+                return message.substring(start + 1, end);
+            }
+        }
+        return message.substring(0, Math.min(message.length(), 16));
+    }
+
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    /**
+     * 拼接开销较大的日志可先判断级别。
+     */
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
     public static void log(String message) {
+        log(INFO, message);
+    }
+
+    public static void d(String message) {
+        log(DEBUG, message);
+    }
+
+    public static void w(String message) {
+        log(WARN, message);
+    }
+
+    public static void e(String message) {
+        log(ERROR, message);
+    }
+
+    public static void log(int level, String message) {
+        if (level < minLevel) {
+            return;
+        }
         if (message == null) message = "null";
+        if (level < WARN) {
+            String tag = tagOf(message);
+            long now = System.nanoTime();
+            TagLimiter limiter = limiters.get(tag);
+            if (limiter == null) {
+                TagLimiter created = new TagLimiter(BURST, RATE_PER_SEC, now);
+                limiter = limiters.putIfAbsent(tag, created);
+                if (limiter == null) {
+                    limiter = created;
+                }
+            }
+            int suppressed = limiter.tryAcquire(now);
+            if (suppressed < 0) {
+                return;
+            }
+            if (suppressed > 0) {
+                enqueue(INFO, "【CS】【Log】" + tag + " 限流，已省略 " + suppressed + " 条");
+            }
+        }
+        enqueue(level, message);
+    }
+
+    private static void enqueue(int level, String message) {
+        if (writer == null) {
+            startWriter();
+        }
+        if (!queue.offer(new Entry(level, message))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(LogUtil::drain, "CS-Log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static void drain() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            int lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                write(WARN, "【CS】【Log】日志队列已满，丢弃 " + lost + " 条");
+            }
+            write(entry.level, entry.message);
+        }
+    }
+
+    private static void write(int level, String message) {
         try {
-            Class<?> xposedBridge = Class.forName("de.robv.android.xposed.XposedBridge");
-            xposedBridge.getMethod("log", String.class).invoke(null, message);
+            sink.write(level, message);
         } catch (Throwable t) {
-            Log.i("LSPosed-Bridge", message);
+            // 日志输出失败不能影响任何调用方
         }
     }
 }
@@ -0,0 +1,346 @@
+package com.example.camswap.utils;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 解码后 PCM 的磁盘缓存：模块进程解码一次，被 Hook 的进程只读映射，不再各自跑 MediaCodec。
+ * <p>
+ * 文件 = {@link #HEADER_BYTES} 字节小端头部（魔数、版本、采样率、声道数、帧数、源文件大小和修改时间）
+ * + 交错 PCM 16-bit 小端，保持源采样率和声道数，重采样仍由各录音的游标完成。
+ * 文件名由源路径、大小、修改时间和格式版本决定，源文件变化后自然落到新文件；只保留最近 {@link #MAX_FILES} 个。
+ * 由 {@link com.example.camswap.VideoProvider} 以只读 fd 提供，被 Hook 进程用 FileChannel.map 映射，
+ * 多个进程共享同一份页缓存。
+ * <p>
+ * 生成只在单个后台线程进行（{@link #prepareAsync}），查找已有缓存（{@link #existing}）不加锁、不解码，
+ * Provider 的 binder 线程不会被长音频的解码拖住。
+ */
+public final class PcmCache {
+    static final int MAGIC = 0x4d435043; // "CPCM"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    private static final String TAG = "【CS】[PcmCache]";
+    private static final String DIR = "pcm";
+    private static final String SUFFIX = ".pcm";
+    private static final int MAX_FILES = 4;
+    private static final long TIMEOUT_US = 10000;
+
+    private static final ExecutorService builder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "CS-PcmCache");
+        t.setDaemon(true);
+        return t;
+    });
+    // 已排队或正在生成的缓存键，避免重复提交
+    private static final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private PcmCache() {
+    }
+
+    /**
+     * 缓存文件头部。
+     */
+    static final class Header {
+        final int sampleRate;
+        final int channels;
+        final long frames;
+        final long sourceSize;
+        final long sourceMtime;
+
+        Header(int sampleRate, int channels, long frames, long sourceSize, long sourceMtime) {
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.frames = frames;
+            this.sourceSize = sourceSize;
+            this.sourceMtime = sourceMtime;
+        }
+
+        ByteBuffer encode() {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(sampleRate).putInt(channels)
+                    .putLong(frames).putLong(sourceSize).putLong(sourceMtime);
+            buf.position(0);
+            return buf;
+        }
+
+        /**
+         * @return 魔数 / 版本不符或参数非法时返回 null
+         */
+        static Header decode(ByteBuffer buf) {
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                return null;
+            }
+            Header h = new Header(buf.getInt(), buf.getInt(), buf.getLong(), buf.getLong(), buf.getLong());
+            return h.sampleRate > 0 && h.channels > 0 && h.frames > 0 ? h : null;
+        }
+    }
+
+    static String keyOf(File source) {
+        String key = source.getAbsolutePath() + '|' + source.length() + '|' + source.lastModified() + '|' + VERSION;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    // ================================================================
+    // 模块进程：生成缓存
+    // ================================================================
+
+    /**
+     * 返回 source 已生成且仍然有效的缓存文件，没有时返回 null。只读文件头，不解码。
+     *
+     * @param cacheRoot 模块的缓存目录（Context.getCacheDir()）
+     */
+    public static File existing(File cacheRoot, File source) {
+        if (source == null || !source.isFile()) {
+            return null;
+        }
+        File target = new File(new File(cacheRoot, DIR), keyOf(source) + SUFFIX);
+        if (!target.isFile() || !isValid(target, source)) {
+            return null;
+        }
+        target.setLastModified(System.currentTimeMillis());
+        return target;
+    }
+
+    /**
+     * 在后台线程生成 source 的缓存；已有有效缓存或同一文件已在排队时直接返回。
+     */
+    public static void prepareAsync(File cacheRoot, File source) {
+        if (source == null || !source.isFile()) {
+            return;
+        }
+        String key = keyOf(source);
+        if (!pending.add(key)) {
+            return;
+        }
+        builder.execute(() -> {
+            try {
+                prepare(cacheRoot, source);
+            } finally {
+                pending.remove(key);
+            }
+        });
+    }
+
+    /**
+     * 返回 source 对应的缓存文件，不存在或已失效时解码生成。只在生成线程调用。
+     *
+     * @return 缓存文件；源文件不存在或解码失败时返回 null
+     */
+    static File prepare(File cacheRoot, File source) {
+        File existing = existing(cacheRoot, source);
+        if (existing != null) {
+            return existing;
+        }
+        File dir = new File(cacheRoot, DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return null;
+        }
+        File target = new File(dir, keyOf(source) + SUFFIX);
+
+        File tmp = new File(dir, target.getName() + ".tmp");
+        long start = System.currentTimeMillis();
+        try {
+            Header header = decodeTo(source, tmp);
+            if (header == null || !tmp.renameTo(target)) {
+                tmp.delete();
+                return null;
+            }
+            LogUtil.log(TAG + " 已缓存 " + source.getName() + ": " + header.frames + " frames, "
+                    + header.sampleRate + "Hz x" + header.channels + ", 用时 "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            LogUtil.log(TAG + " 生成缓存失败 " + source + ": " + e);
+            tmp.delete();
+            return null;
+        }
+        evict(dir, target);
+        return target;
+    }
+
+    private static boolean isValid(File cache, File source) {
+        try (RandomAccessFile raf = new RandomAccessFile(cache, "r")) {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES);
+            raf.getChannel().read(buf, 0);
+            buf.flip();
+            Header h = Header.decode(buf);
+            return h != null && h.sourceSize == source.length() && h.sourceMtime == source.lastModified()
+                    && cache.length() == HEADER_BYTES + h.frames * h.channels * 2;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** 只保留最近使用的 MAX_FILES 个缓存 */
+    private static void evict(File dir, File keep) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null || files.length <= MAX_FILES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (int i = MAX_FILES; i < files.length; i++) {
+            if (!files[i].equals(keep)) {
+                files[i].delete();
+            }
+        }
+    }
+
+    /**
+     * 解码 source 的第一条音轨写入 out，返回写入的头部。
+     */
+    private static Header decodeTo(File source, File out) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try (RandomAccessFile raf = new RandomAccessFile(out, "rw")) {
+            FileChannel channel = raf.getChannel();
+            raf.setLength(0);
+            extractor.setDataSource(source.getAbsolutePath());
+
+            int audioTrack = -1;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    audioTrack = i;
+                    break;
+                }
+            }
+            if (audioTrack < 0) {
+                LogUtil.log(TAG + " 未找到音频轨道: " + source);
+                return null;
+            }
+            extractor.selectTrack(audioTrack);
+            MediaFormat format = extractor.getTrackFormat(audioTrack);
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            // 先占位头部，PCM 写完后回填帧数
+            channel.position(HEADER_BYTES);
+            long bytes = 0;
+            boolean inputDone = false;
+            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+            while (true) {
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer inputBuffer;
+                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                            inputBuffer = codec.getInputBuffer(inputIndex);
+                        } else {
+                            inputBuffer = codec.getInputBuffers()[inputIndex];
+                        }
+                        int sampleSize = extractor.readSampleData(inputBuffer, 0);
+                        if (sampleSize < 0) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, sampleSize, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outputIndex = codec.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+                if (outputIndex < 0) {
+                    continue;
+                }
+                ByteBuffer outputBuffer;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    outputBuffer = codec.getOutputBuffer(outputIndex);
+                } else {
+                    outputBuffer = codec.getOutputBuffers()[outputIndex];
+                }
+                if (outputBuffer != null && bufferInfo.size > 0) {
+                    // 解码器输出为本机字节序，Android 各 ABI 均为小端，原样写入
+                    outputBuffer.position(bufferInfo.offset);
+                    outputBuffer.limit(bufferInfo.offset + bufferInfo.size);
+                    while (outputBuffer.hasRemaining()) {
+                        bytes += channel.write(outputBuffer);
+                    }
+                }
+                codec.releaseOutputBuffer(outputIndex, false);
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    break;
+                }
+            }
+
+            long frames = bytes / (2L * channels);
+            if (frames == 0) {
+                return null;
+            }
+            // 截掉不完整的最后一帧
+            raf.setLength(HEADER_BYTES + frames * channels * 2);
+            Header header = new Header(sampleRate, channels, frames, source.length(), source.lastModified());
+            channel.write(header.encode(), 0);
+            channel.force(false);
+            return header;
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                    codec.release();
+                } catch (Exception ignored) {
+                }
+            }
+            extractor.release();
+        }
+    }
+
+    // ================================================================
+    // 被 Hook 进程：映射缓存
+    // ================================================================
+
+    /**
+     * 只读映射 pfd 指向的缓存文件。映射在 pfd 关闭后仍然有效。
+     *
+     * @param filePath 对应的源文件路径，仅用于标识
+     * @return 格式不符时返回 null
+     */
+    public static PcmSnapshot map(String filePath, ParcelFileDescriptor pfd) throws IOException {
+        try (FileInputStream in = new FileInputStream(pfd.getFileDescriptor())) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(buf, 0);
+            buf.flip();
+            Header h = Header.decode(buf);
+            long dataBytes = h != null ? h.frames * h.channels * 2 : 0;
+            if (h == null || dataBytes > Integer.MAX_VALUE || channel.size() < HEADER_BYTES + dataBytes) {
+                return null;
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, dataBytes);
+            return new PcmSnapshot(filePath, data.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer(),
+                    h.sampleRate, h.channels);
+        }
+    }
+}
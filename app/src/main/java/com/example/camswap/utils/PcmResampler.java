@@ -0,0 +1,102 @@
+package com.example.camswap.utils;
+
+import java.nio.ShortBuffer;
+
+/**
+ * 16 位 PCM 线性插值重采样 + 声道映射，不依赖 Android，可在 JVM 上基准测试。
+ * <p>
+ * 源数据视为循环播放：读到末尾后回到开头。目标声道 ch 取源声道 ch % srcChannels。
+ */
+public final class PcmResampler {
+    private PcmResampler() {
+    }
+
+    /**
+     * 从源帧位置 srcStart 起，每个目标帧前进 ratio 个源帧，写入 dstFrames 个目标帧。
+     *
+     * @param pcm         源 PCM（交错声道）
+     * @param srcChannels 源声道数
+     * @param srcStart    起始源帧位置（可含小数）
+     * @param ratio       源采样率 / 目标采样率
+     * @param dst         目标缓冲区，长度至少 dstFrames * dstChannels
+     */
+    public static void resample(short[] pcm, int srcChannels, double srcStart, double ratio, short[] dst,
+            int dstFrames, int dstChannels) {
+        resample(pcm, srcChannels, srcStart, ratio, dst, 0, dstFrames * dstChannels, dstChannels);
+    }
+
+    /**
+     * 直接写入调用方缓冲区的 [dstOffset, dstOffset + dstSamples)，不分配中间数组。
+     * dstSamples 不是声道数整数倍时最后一帧只写前几个声道。
+     *
+     * @return 消耗的目标帧数（向上取整）
+     */
+    public static int resample(short[] pcm, int srcChannels, double srcStart, double ratio, short[] dst,
+            int dstOffset, int dstSamples, int dstChannels) {
+        int dstFrames = (dstSamples + dstChannels - 1) / dstChannels;
+        int srcFrameCount = pcm.length / srcChannels;
+        int last = pcm.length - 1;
+        int end = dstOffset + dstSamples;
+        for (int frame = 0; frame < dstFrames; frame++) {
+            double srcFramePos = srcStart + frame * ratio;
+            long srcFrameIndex = (long) srcFramePos % srcFrameCount;
+            double frac = srcFramePos - (long) srcFramePos;
+            // 下一帧（用于线性插值）
+            long nextFrameIndex = (srcFrameIndex + 1) % srcFrameCount;
+
+            int out = dstOffset + frame * dstChannels;
+            int channels = Math.min(dstChannels, end - out);
+            for (int ch = 0; ch < channels; ch++) {
+                int srcCh = ch % srcChannels;
+                int idx1 = (int) (srcFrameIndex * srcChannels + srcCh);
+                int idx2 = (int) (nextFrameIndex * srcChannels + srcCh);
+                // 边界保护
+                if (idx1 > last)
+                    idx1 = last;
+                if (idx2 > last)
+                    idx2 = last;
+                if (idx1 < 0)
+                    idx1 = 0;
+                if (idx2 < 0)
+                    idx2 = 0;
+
+                short s1 = pcm[idx1];
+                short s2 = pcm[idx2];
+                dst[out + ch] = (short) (s1 + (s2 - s1) * frac);
+            }
+        }
+        return dstFrames;
+    }
+
+    /**
+     * 同上，源数据为 ShortBuffer（如映射的 PCM 缓存文件），按绝对下标读取，不改变其 position。
+     *
+     * @return 消耗的目标帧数（向上取整）
+     */
+    public static int resample(ShortBuffer pcm, int srcChannels, double srcStart, double ratio, short[] dst,
+            int dstOffset, int dstSamples, int dstChannels) {
+        int dstFrames = (dstSamples + dstChannels - 1) / dstChannels;
+        int length = pcm.limit();
+        int srcFrameCount = length / srcChannels;
+        int last = length - 1;
+        int end = dstOffset + dstSamples;
+        for (int frame = 0; frame < dstFrames; frame++) {
+            double srcFramePos = srcStart + frame * ratio;
+            long srcFrameIndex = (long) srcFramePos % srcFrameCount;
+            double frac = srcFramePos - (long) srcFramePos;
+            long nextFrameIndex = (srcFrameIndex + 1) % srcFrameCount;
+
+            int out = dstOffset + frame * dstChannels;
+            int channels = Math.min(dstChannels, end - out);
+            for (int ch = 0; ch < channels; ch++) {
+                int srcCh = ch % srcChannels;
+                int idx1 = Math.max(0, Math.min(last, (int) (srcFrameIndex * srcChannels + srcCh)));
+                int idx2 = Math.max(0, Math.min(last, (int) (nextFrameIndex * srcChannels + srcCh)));
+                short s1 = pcm.get(idx1);
+                short s2 = pcm.get(idx2);
+                dst[out + ch] = (short) (s1 + (s2 - s1) * frac);
+            }
+        }
+        return dstFrames;
+    }
+}
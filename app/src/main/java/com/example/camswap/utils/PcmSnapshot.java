@@ -0,0 +1,47 @@
+package com.example.camswap.utils;
+
+import java.nio.ShortBuffer;
+
+/**
+ * 完整的一段 PCM 16-bit 音频（交错声道），创建后不再修改。
+ * 数据在堆内（本进程解码）或是映射的 {@link PcmCache} 文件（模块进程预先解码）。
+ * <p>
+ * 加载新文件时整体替换引用发布，读线程拿到的快照在使用期间保持一致，
+ * 不会读到解码一半的数据或与数据不匹配的采样率 / 声道数。
+ */
+public final class PcmSnapshot extends PcmSource {
+    /** 堆内数据；映射缓存文件时为 null */
+    public final short[] pcm;
+    /** 映射的缓存文件数据，只按绝对下标读取；堆内数据时为 null */
+    final ShortBuffer mapped;
+    private final int frameCount;
+
+    public PcmSnapshot(String filePath, short[] pcm, int sampleRate, int channels) {
+        super(filePath, sampleRate, channels, (long) (pcm.length / channels) * 1000 / sampleRate);
+        this.pcm = pcm;
+        this.mapped = null;
+        this.frameCount = pcm.length / channels;
+    }
+
+    PcmSnapshot(String filePath, ShortBuffer mapped, int sampleRate, int channels) {
+        super(filePath, sampleRate, channels, (long) (mapped.limit() / channels) * 1000 / sampleRate);
+        this.pcm = null;
+        this.mapped = mapped;
+        this.frameCount = mapped.limit() / channels;
+    }
+
+    public int frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * 从源帧位置 srcStart 起重采样写入 dst，见 {@link PcmResampler}。
+     *
+     * @return 消耗的目标帧数
+     */
+    int resample(double srcStart, double ratio, short[] dst, int offset, int samples, int targetChannels) {
+        return pcm != null
+                ? PcmResampler.resample(pcm, channels, srcStart, ratio, dst, offset, samples, targetChannels)
+                : PcmResampler.resample(mapped, channels, srcStart, ratio, dst, offset, samples, targetChannels);
+    }
+}
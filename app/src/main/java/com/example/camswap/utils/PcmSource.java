@@ -0,0 +1,19 @@
+package com.example.camswap.utils;
+
+/**
+ * 当前可供录音读取的 PCM 数据源：整段解码在内存中的 {@link PcmSnapshot}，
+ * 或边解码边播放的 {@link PcmStream}。格式信息在创建时确定，之后不变。
+ */
+public abstract class PcmSource {
+    public final String filePath;
+    public final int sampleRate;
+    public final int channels;
+    public final long durationMs;
+
+    PcmSource(String filePath, int sampleRate, int channels, long durationMs) {
+        this.filePath = filePath;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.durationMs = durationMs;
+    }
+}
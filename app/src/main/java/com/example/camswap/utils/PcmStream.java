@@ -0,0 +1,265 @@
+package com.example.camswap.utils;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+
+import com.example.camswap.Metrics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * 长音频的流式数据源：后台线程边解码边写入约 {@link #RING_SECONDS} 秒的环形缓冲区，
+ * 读到文件末尾时 seek 回开头继续，内存占用与音频长度无关。
+ * <p>
+ * 环内的帧按“流帧”编号（单调递增，循环播放也不回绕），流帧 i 存在 ring[i % capacity]。
+ * 解码线程最多领先最远的读者半个环，领先够了就阻塞等待读者推进（停止录音后不再占用 CPU）；
+ * 落后超出可读窗口的读者被拉到窗口起点，
+ * 数据还没解码到时读取方填静音（计入 audio.stream_underruns）。
+ * 视频同步模式请求的位置不在环附近时，解码线程 seek 到该位置重新填充。
+ */
+public final class PcmStream extends PcmSource {
+    static final int RING_SECONDS = 4;
+
+    private static final String TAG = "【CS】[AudioStream]";
+    private static final long TIMEOUT_US = 10000;
+    private static final Metrics.Counter underruns = Metrics.counter("audio.stream_underruns");
+
+    final short[] ring;
+    // 环容量（帧）
+    final int capacity;
+    // 可读窗口与即将被覆盖区域之间的余量（帧）
+    private final int guard;
+
+    // 以下只由解码线程写入
+    private volatile long written;       // 已写入的流帧数，即环末端
+    private volatile long validFrom;     // seek 之后，此前写入的帧不再属于当前时间线
+    private volatile long loopStart;     // 文件第 0 帧对应的流帧
+    private volatile long fileFrames;    // 一轮的帧数，首次读到结尾前按时长估算
+
+    // 由读者写入
+    private volatile long readHead;      // 读者请求到的最远流帧
+    private volatile long seekFrame = -1; // 待执行的跳转（文件帧）
+    private volatile boolean closed;
+    // 解码线程正在 awaitReaders() 中等待
+    private volatile boolean refillWaiting;
+
+    private final Object signal = new Object();
+
+    PcmStream(String filePath, int sampleRate, int channels, long durationMs) {
+        super(filePath, sampleRate, channels, durationMs);
+        this.capacity = sampleRate * RING_SECONDS;
+        this.guard = capacity / 4;
+        this.ring = new short[capacity * channels];
+        this.fileFrames = durationMs * sampleRate / 1000;
+    }
+
+    long fileFrames() {
+        return fileFrames;
+    }
+
+    /**
+     * 读者将要读取从 start 起 frames 个流帧（含插值多读的帧）。
+     *
+     * @return 实际起点：落后过多时前移到可读窗口起点；数据尚未解码到时返回 -1
+     */
+    long acquire(long start, long frames) {
+        // 多个读者同时推进时可能互相覆盖成较小值，只会让解码线程稍晚继续，不影响正确性
+        if (start + frames > readHead) {
+            readHead = start + frames;
+            if (refillWaiting && written - readHead < capacity / 2) {
+                synchronized (signal) {
+                    signal.notifyAll();
+                }
+            }
+        }
+        long end = written;
+        long lo = Math.max(end - capacity + guard, validFrom);
+        if (start < lo) {
+            start = lo;
+        }
+        if (start + frames > end) {
+            underruns.inc();
+            return -1;
+        }
+        return start;
+    }
+
+    /**
+     * 视频同步模式：文件帧 → 流帧。不在环附近时请求解码线程跳转并返回 -1。
+     */
+    long locate(long fileFrame) {
+        long end = written;
+        long lo = Math.max(end - capacity + guard, validFrom);
+        long hi = end + capacity / 2;
+        long current = loopStart + fileFrame;
+        if (current >= lo && current <= hi) {
+            return current;
+        }
+        // 解码线程已经绕回开头，读者还在上一轮的结尾
+        long previous = current - fileFrames;
+        if (previous >= lo && previous <= hi) {
+            return previous;
+        }
+        seekFrame = fileFrame;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        return -1;
+    }
+
+    /**
+     * 写入一段解码输出（交错声道），只由解码线程调用。
+     */
+    void append(ShortBuffer src) {
+        int frames = Math.min(src.remaining() / channels, capacity);
+        int pos = (int) (written % capacity);
+        int first = Math.min(frames, capacity - pos);
+        src.get(ring, pos * channels, first * channels);
+        if (frames > first) {
+            src.get(ring, 0, (frames - first) * channels);
+        }
+        written += frames;
+    }
+
+    /**
+     * 领先最远的读者半个环时阻塞，直到读者推进、请求跳转或关闭。只由解码线程调用。
+     */
+    void awaitReaders() throws InterruptedException {
+        synchronized (signal) {
+            refillWaiting = true;
+            try {
+                while (!closed && seekFrame < 0 && written - readHead >= capacity / 2) {
+                    signal.wait();
+                }
+            } finally {
+                refillWaiting = false;
+            }
+        }
+    }
+
+    /**
+     * 启动解码线程，extractor（已选好音轨）、codec（已 start）和 pfd 的所有权转交给本对象。
+     */
+    void start(MediaExtractor extractor, MediaCodec codec, ParcelFileDescriptor pfd) {
+        Thread thread = new Thread(() -> decodeLoop(extractor, codec, pfd), "CS-AudioStream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 停止解码并释放解码器；已拿到本对象的读者仍可安全读完当前这次。
+     */
+    void close() {
+        closed = true;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void decodeLoop(MediaExtractor extractor, MediaCodec codec, ParcelFileDescriptor pfd) {
+        MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+        boolean inputDone = false;
+        // seek 后用第一块输出的时间戳校准 loopStart
+        boolean awaitingPts = false;
+        try {
+            while (!closed) {
+                long seek = seekFrame;
+                if (seek >= 0) {
+                    seekFrame = -1;
+                    extractor.seekTo(seek * 1000000L / sampleRate, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+                    codec.flush();
+                    inputDone = false;
+                    validFrom = written;
+                    loopStart = written - seek;
+                    awaitingPts = true;
+                    continue;
+                }
+
+                if (written - readHead >= capacity / 2) {
+                    awaitReaders();
+                    continue;
+                }
+
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer inputBuffer;
+                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                            inputBuffer = codec.getInputBuffer(inputIndex);
+                        } else {
+                            inputBuffer = codec.getInputBuffers()[inputIndex];
+                        }
+                        int sampleSize = extractor.readSampleData(inputBuffer, 0);
+                        if (sampleSize < 0) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0,
+                                    MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, sampleSize,
+                                    extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outputIndex = codec.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+                if (outputIndex < 0) {
+                    continue;
+                }
+                ByteBuffer outputBuffer;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    outputBuffer = codec.getOutputBuffer(outputIndex);
+                } else {
+                    outputBuffer = codec.getOutputBuffers()[outputIndex];
+                }
+                if (outputBuffer != null && bufferInfo.size > 0) {
+                    outputBuffer.position(bufferInfo.offset);
+                    outputBuffer.limit(bufferInfo.offset + bufferInfo.size);
+                    if (awaitingPts) {
+                        loopStart = written - bufferInfo.presentationTimeUs * sampleRate / 1000000L;
+                        awaitingPts = false;
+                    }
+                    append(outputBuffer.order(ByteOrder.nativeOrder()).asShortBuffer());
+                }
+                codec.releaseOutputBuffer(outputIndex, false);
+
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    long loopFrames = written - loopStart;
+                    if (loopFrames <= 0) {
+                        LogUtil.log(TAG + " 音频没有可解码的数据: " + filePath);
+                        break;
+                    }
+                    // 一轮结束：记下准确帧数，seek 回开头接着写
+                    fileFrames = loopFrames;
+                    loopStart = written;
+                    extractor.seekTo(0, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+                    codec.flush();
+                    inputDone = false;
+                }
+            }
+        } catch (InterruptedException ignored) {
+        } catch (Exception e) {
+            LogUtil.log(TAG + " 流式解码失败: " + e);
+        } finally {
+            try {
+                codec.stop();
+                codec.release();
+            } catch (Exception ignored) {
+            }
+            try {
+                extractor.release();
+            } catch (Exception ignored) {
+            }
+            try {
+                if (pfd != null) {
+                    pfd.close();
+                }
+            } catch (Exception ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.camswap.utils;
+
+import java.util.Arrays;
+
+/**
+ * 一个录音读取方的播放游标：循环播放位置（替换模式）与帧偏移追踪（视频同步模式）。
+ * <p>
+ * 游标只由所属录音的读线程推进，调用方在填充期间持有游标的监视器（无竞争时几乎没有开销）。
+ * 数据源换成新的 {@link PcmSource} 后自动从头开始。
+ */
+public final class PlaybackCursor {
+    private PcmSource source;
+    // 播放位置（以目标帧为单位，一帧 = 所有声道的一个采样点）；流式数据源下单调递增不回绕
+    private long position;
+    // 帧偏移追踪 — positionMs 更新频率低于 read() 调用频率时，用累积帧偏移保证音频持续推进
+    private long lastSyncPositionMs = -1;
+    private long accumulatedFrameOffset;
+    // byte / float / ByteBuffer 目标的 short 暂存区，只增不减
+    private short[] scratch = new short[0];
+
+    public synchronized void reset() {
+        source = null;
+        position = 0;
+        lastSyncPositionMs = -1;
+        accumulatedFrameOffset = 0;
+    }
+
+    short[] scratch(int samples) {
+        if (scratch.length < samples) {
+            scratch = new short[samples];
+        }
+        return scratch;
+    }
+
+    private void follow(PcmSource pcm) {
+        if (pcm != source) {
+            source = pcm;
+            position = 0;
+            lastSyncPositionMs = -1;
+            accumulatedFrameOffset = 0;
+        }
+    }
+
+    /**
+     * 从当前播放位置循环读取，写入 dst[offset, offset + samples) 并推进位置。
+     *
+     * @return 消耗的目标帧数
+     */
+    int fill(PcmSnapshot pcm, short[] dst, int offset, int samples, int targetSampleRate, int targetChannels) {
+        follow(pcm);
+        double ratio = (double) pcm.sampleRate / targetSampleRate;
+        int frames = pcm.resample(position * ratio, ratio, dst, offset, samples, targetChannels);
+        position += frames;
+        // 循环：源数据对应的目标帧总数
+        long totalTargetFrames = (long) Math.ceil(pcm.frameCount() / ratio);
+        if (totalTargetFrames > 0) {
+            position = position % totalTargetFrames;
+        }
+        return frames;
+    }
+
+    /**
+     * 按绝对时间位置读取（视频同步模式），不影响循环播放位置。
+     *
+     * @return 消耗的目标帧数
+     */
+    int fillAtPosition(PcmSnapshot pcm, short[] dst, int offset, int samples, int targetSampleRate,
+            int targetChannels, long positionMs) {
+        follow(pcm);
+        double ratio = (double) pcm.sampleRate / targetSampleRate;
+        int frames = (samples + targetChannels - 1) / targetChannels;
+
+        // positionMs 变化了 — 重置累积偏移；与上次相同时累积偏移量持续推进
+        if (positionMs != lastSyncPositionMs) {
+            lastSyncPositionMs = positionMs;
+            accumulatedFrameOffset = 0;
+        }
+        // 将毫秒位置转换为源帧位置，加上累积偏移
+        long baseSrcFrame = (long) (positionMs / 1000.0 * pcm.sampleRate);
+        long offsetInSrcFrames = (long) (accumulatedFrameOffset * ratio);
+        long startSrcFrame = (baseSrcFrame + offsetInSrcFrames) % pcm.frameCount();
+        accumulatedFrameOffset += frames;
+
+        pcm.resample(startSrcFrame, ratio, dst, offset, samples, targetChannels);
+        return frames;
+    }
+
+    /**
+     * 从流式数据源的当前位置读取并推进；解码尚未跟上时填静音且不推进。
+     *
+     * @return 消耗的目标帧数
+     */
+    int fill(PcmStream stream, short[] dst, int offset, int samples, int targetSampleRate, int targetChannels) {
+        follow(stream);
+        double ratio = (double) stream.sampleRate / targetSampleRate;
+        int frames = (samples + targetChannels - 1) / targetChannels;
+        long wanted = (long) (position * ratio);
+        long start = stream.acquire(wanted, span(frames, ratio));
+        if (start < 0) {
+            Arrays.fill(dst, offset, offset + samples, (short) 0);
+            return frames;
+        }
+        if (start != wanted) {
+            // 落后太多，跳到可读窗口起点
+            position = (long) Math.ceil(start / ratio);
+        }
+        readRing(stream, position * ratio, ratio, dst, offset, samples, targetChannels);
+        position += frames;
+        return frames;
+    }
+
+    /**
+     * 流式数据源的按绝对时间位置读取（视频同步模式）。
+     *
+     * @return 消耗的目标帧数
+     */
+    int fillAtPosition(PcmStream stream, short[] dst, int offset, int samples, int targetSampleRate,
+            int targetChannels, long positionMs) {
+        follow(stream);
+        double ratio = (double) stream.sampleRate / targetSampleRate;
+        int frames = (samples + targetChannels - 1) / targetChannels;
+
+        if (positionMs != lastSyncPositionMs) {
+            lastSyncPositionMs = positionMs;
+            accumulatedFrameOffset = 0;
+        }
+        long fileFrame = (long) (positionMs / 1000.0 * stream.sampleRate)
+                + (long) (accumulatedFrameOffset * ratio);
+        long fileFrames = stream.fileFrames();
+        if (fileFrames > 0) {
+            fileFrame %= fileFrames;
+        }
+        accumulatedFrameOffset += frames;
+
+        long start = stream.locate(fileFrame);
+        if (start >= 0) {
+            start = stream.acquire(start, span(frames, ratio));
+        }
+        if (start < 0) {
+            Arrays.fill(dst, offset, offset + samples, (short) 0);
+            return frames;
+        }
+        readRing(stream, start, ratio, dst, offset, samples, targetChannels);
+        return frames;
+    }
+
+    /** 读取 frames 个目标帧需要的源帧数，含插值的下一帧和跳转时的取整余量 */
+    private static long span(int frames, double ratio) {
+        return (long) Math.ceil((frames + 1) * ratio) + 1;
+    }
+
+    private static void readRing(PcmStream stream, double srcStart, double ratio, short[] dst, int offset,
+            int samples, int targetChannels) {
+        // 重采样器按源帧数取模，环上的流帧 i 正好落在 i % capacity
+        long whole = (long) srcStart;
+        double ringStart = whole % stream.capacity + (srcStart - whole);
+        PcmResampler.resample(stream.ring, stream.channels, ringStart, ratio, dst, offset, samples,
+                targetChannels);
+    }
+}
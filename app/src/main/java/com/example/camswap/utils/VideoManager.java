@@ -111,6 +111,29 @@ public class VideoManager {
         return null;
     }
 
+    /**
+     * 向模块 Provider 请求解码好的 PCM 缓存（见 {@link PcmCache}）。
+     *
+     * @param audioName 媒体目录下的文件名；null 表示当前视频的音轨
+     * @return 模块进程不可用或缓存生成失败时返回 null
+     */
+    public static ParcelFileDescriptor getPcmPFD(String audioName) {
+        if (toast_content == null) {
+            return null;
+        }
+        Uri uri = Uri.withAppendedPath(com.example.camswap.VideoProvider.CONTENT_URI,
+                com.example.camswap.VideoProvider.PATH_PCM);
+        if (audioName != null) {
+            uri = Uri.withAppendedPath(uri, audioName);
+        }
+        try {
+            return toast_content.getContentResolver().openFileDescriptor(uri, "r");
+        } catch (Exception e) {
+            log("【CS】getPcmPFD 失败: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        return null;
+    }
+
     public static void copyToPrivateDir(ParcelFileDescriptor pfd) {
         if (toast_content == null)
             return;
@@ -161,14 +184,7 @@ public class VideoManager {
     // Use LogUtil instead of direct XposedBridge to avoid crash in non-Xposed
     // process
     private static void log(String msg) {
-        try {
-            // Try to use LogUtil if available
-            Class<?> logUtilClass = Class.forName("com.example.camswap.utils.LogUtil");
-            logUtilClass.getMethod("log", String.class).invoke(null, msg);
-        } catch (Throwable e) {
-            // Fallback to standard android log if Xposed bridge is not available
-            android.util.Log.i("LSPosed-Bridge", msg);
-        }
+        LogUtil.log(msg);
     }
 
     public static void updateVideoPath(boolean forceRandom) {
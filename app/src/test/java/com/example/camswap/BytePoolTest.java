@@ -0,0 +1,64 @@
+package com.example.camswap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BytePoolTest {
+
+    @After
+    public void tearDown() {
+        BytePool.clear();
+        BytePool.setBudgetBytes(32L * 1024 * 1024);
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        BytePool.clear();
+        byte[] buffer = new byte[1000];
+        BytePool.release(buffer);
+        assertEquals(1000, BytePool.getPooledBytes());
+        assertSame(buffer, BytePool.acquire(1000));
+        assertEquals(0, BytePool.getPooledBytes());
+    }
+
+    @Test
+    public void testBudgetEvictsOtherSizesAndNeverExceeds() {
+        BytePool.clear();
+        BytePool.setBudgetBytes(2500);
+        BytePool.release(new byte[1000]);
+        BytePool.release(new byte[1000]);
+        // 超出预算：淘汰 1000 字节类，新尺寸入池
+        BytePool.release(new byte[2000]);
+        assertEquals(2000, BytePool.getPooledBytes());
+        // 同尺寸再放一个放不下，也没有别的类可淘汰：直接丢弃而不是卡住
+        BytePool.release(new byte[2000]);
+        assertEquals(2000, BytePool.getPooledBytes());
+    }
+
+    @Test
+    public void testConcurrentReleaseOverBudgetTerminates() throws Exception {
+        BytePool.clear();
+        BytePool.setBudgetBytes(4096);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int size = 1000 + t * 100;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    BytePool.release(new byte[size]);
+                    BytePool.acquire(size);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(10000);
+            assertTrue("release 卡住", !thread.isAlive());
+        }
+        BytePool.clear();
+        assertEquals(0, BytePool.getPooledBytes());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.camswap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FrameRingTest {
+
+    @Test
+    public void testEmptyRing() {
+        FrameRing ring = new FrameRing(3);
+        assertFalse(ring.hasFrame());
+        assertNull(ring.acquireLatest());
+        assertEquals(-1, ring.copyLatest(new byte[4]));
+    }
+
+    @Test
+    public void testPublishAndCopy() {
+        FrameRing ring = new FrameRing(3);
+        FrameRing.Slot slot = ring.claim(6);
+        assertNotNull(slot);
+        for (int i = 0; i < 6; i++) {
+            slot.data()[i] = (byte) i;
+        }
+        ring.publish(slot, 2, 2, 6, 1000);
+
+        byte[] dst = new byte[6];
+        assertEquals(1, ring.copyLatest(dst));
+        assertEquals(5, dst[5]);
+    }
+
+    @Test
+    public void testWriterNeverClaimsLatestOrHeldSlot() {
+        FrameRing ring = new FrameRing(3);
+        FrameRing.Slot first = ring.claim(4);
+        ring.publish(first, 2, 1, 3, 0);
+
+        // 读者持有第一帧
+        FrameRing.Slot held = ring.acquireLatest();
+        assertSame(first, held);
+
+        FrameRing.Slot second = ring.claim(4);
+        assertNotSame(first, second);
+        ring.publish(second, 2, 1, 3, 0);
+
+        FrameRing.Slot third = ring.claim(4);
+        assertNotSame(first, third);
+        assertNotSame(second, third);
+        ring.publish(third, 2, 1, 3, 0);
+
+        // first 仍被持有，second 是上一帧可回收
+        FrameRing.Slot fourth = ring.claim(4);
+        assertSame(second, fourth);
+        ring.abort(fourth);
+
+        ring.release(held);
+        assertSame(third, ring.acquireLatest());
+    }
+
+    @Test
+    public void testClaimFailsWhenAllSlotsBusy() {
+        FrameRing ring = new FrameRing(2);
+        FrameRing.Slot a = ring.claim(1);
+        ring.publish(a, 1, 1, 1, 0);
+        FrameRing.Slot held = ring.acquireLatest();
+
+        FrameRing.Slot b = ring.claim(1);
+        assertNotNull(b);
+        // a 是最新帧且被读者持有，b 正在写：没有可用槽位
+        assertNull(ring.claim(1));
+
+        ring.abort(b);
+        ring.release(held);
+        assertNotNull(ring.claim(1));
+    }
+
+    @Test
+    public void testWantsFrameTracksConsumer() {
+        FrameRing ring = new FrameRing(3);
+        long now = System.nanoTime();
+        // 尚无帧时总是需要
+        assertTrue(ring.wantsFrame(now + 10 * FrameRing.CONSUMER_IDLE_NS));
+
+        FrameRing.Slot slot = ring.claim(1);
+        ring.publish(slot, 1, 1, 1, 0);
+        long later = System.nanoTime() + 2 * FrameRing.CONSUMER_IDLE_NS;
+        assertFalse(ring.wantsFrame(later));
+
+        ring.release(ring.acquireLatest());
+        assertTrue(ring.wantsFrame(System.nanoTime()));
+
+        ring.clear();
+        assertTrue(ring.wantsFrame(later));
+    }
+
+    @Test
+    public void testDirectSlots() {
+        FrameRing ring = new FrameRing(3);
+        ring.setDirect(true);
+        FrameRing.Slot slot = ring.claim(6);
+        assertNull(slot.data());
+        assertTrue(slot.buffer().isDirect());
+        for (int i = 0; i < 6; i++) {
+            slot.buffer().put(i, (byte) (i + 1));
+        }
+        ring.publish(slot, 2, 2, 6, 1000);
+
+        byte[] dst = new byte[6];
+        assertEquals(1, ring.copyLatest(dst));
+        assertEquals(6, dst[5]);
+
+        // 切回堆数组后新槽位不再持有直接缓冲区
+        ring.setDirect(false);
+        FrameRing.Slot heap = ring.claim(6);
+        assertNotNull(heap.data());
+        assertNull(heap.buffer());
+        ring.abort(heap);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.camswap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class MetricsTest {
+
+    @Test
+    public void testBucketsCoverValues() {
+        for (long v : new long[] { 0, 1, 15, 16, 17, 31, 32, 1000, 123456789L, Long.MAX_VALUE }) {
+            int index = Metrics.Histogram.bucketIndex(v);
+            long upper = Metrics.Histogram.bucketUpperBound(index);
+            assertTrue(v + " <= " + upper, v <= upper);
+            // 相对误差不超过 1/16
+            assertTrue(v + " bucket too wide", upper - v <= Math.max(0, v / Metrics.Histogram.SUB_BUCKETS));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        Metrics.Histogram h = new Metrics.Histogram();
+        assertEquals(0, h.percentile(0.5));
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i);
+        }
+        assertEquals(1000, h.count());
+        assertEquals(1000, h.max());
+        long p50 = h.percentile(0.5);
+        assertTrue("p50=" + p50, p50 >= 500 && p50 <= 500 + 500 / 16);
+        assertEquals(1000, h.percentile(1.0));
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        Metrics.Counter c = Metrics.counter("test.counter");
+        assertSame(c, Metrics.counter("test.counter"));
+        c.add(5);
+        Metrics.histogram("test.latency_us").record(42);
+        Metrics.gauge("test.gauge", () -> 7);
+
+        JSONObject snapshot = Metrics.snapshot();
+        assertEquals(5, snapshot.getJSONObject("counters").getJSONObject("test.counter").getLong("count"));
+        assertEquals(7, snapshot.getJSONObject("gauges").getLong("test.gauge"));
+        assertEquals(42, snapshot.getJSONObject("histograms").getJSONObject("test.latency_us").getLong("max"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.camswap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PresentationClockTest {
+
+    private static long elapsedMs(long startNs) {
+        return (System.nanoTime() - startNs) / 1_000_000L;
+    }
+
+    @Test
+    public void testLateFrameIsDropped() throws Exception {
+        PresentationClock clock = new PresentationClock(false, 20);
+        clock.beginPass();
+        assertTrue(clock.await(0));
+        Thread.sleep(100);
+        // 第二帧应在 33ms 时交付，此时已迟到约 67ms
+        assertFalse(clock.await(33_333));
+        assertEquals(1, clock.getDroppedFrames());
+        // 之后按时到达的帧照常交付
+        assertTrue(clock.await(120_000));
+    }
+
+    @Test
+    public void testNegativeThresholdNeverDrops() throws Exception {
+        PresentationClock clock = new PresentationClock(false, -1);
+        clock.beginPass();
+        assertTrue(clock.await(0));
+        Thread.sleep(100);
+        assertTrue(clock.await(33_333));
+        assertEquals(0, clock.getDroppedFrames());
+    }
+
+    @Test
+    public void testEarlyFrameIsHeld() {
+        PresentationClock clock = new PresentationClock(true, -1);
+        clock.beginPass();
+        long start = System.nanoTime();
+        assertTrue(clock.await(0));
+        assertTrue(clock.await(80_000));
+        assertTrue(elapsedMs(start) >= 70);
+    }
+
+    @Test
+    public void testTimelineContinuesAcrossLoops() {
+        PresentationClock clock = new PresentationClock(true, 20);
+        long start = System.nanoTime();
+        clock.beginPass();
+        assertTrue(clock.await(0));
+        assertTrue(clock.await(40_000));
+        assertTrue(clock.await(80_000));
+        // 第二轮的第一帧排在上一轮最后一帧之后约一个帧间隔，而不是立即交付或被判为迟到
+        clock.beginPass();
+        assertTrue(clock.await(0));
+        long elapsed = elapsedMs(start);
+        assertTrue("elapsed " + elapsed, elapsed >= 110);
+        assertTrue("elapsed " + elapsed, elapsed < 400);
+        assertEquals(0, clock.getDroppedFrames());
+    }
+
+    @Test
+    public void testMaxFrameRateDownsamples() {
+        PresentationClock clock = new PresentationClock(false, -1);
+        clock.setMaxFrameRate(15);
+        clock.beginPass();
+        assertTrue(clock.await(0));
+        assertFalse(clock.await(33_333));
+        assertTrue(clock.await(66_667));
+        assertFalse(clock.await(100_000));
+        assertTrue(clock.await(133_333));
+        assertEquals(2, clock.getDroppedFrames());
+    }
+
+    @Test
+    public void testCancelStopsWaiting() {
+        PresentationClock clock = new PresentationClock(true, -1);
+        clock.beginPass();
+        assertTrue(clock.await(0));
+        clock.cancel();
+        long start = System.nanoTime();
+        assertTrue(clock.await(10_000_000));
+        assertTrue(elapsedMs(start) < 1000);
+    }
+}
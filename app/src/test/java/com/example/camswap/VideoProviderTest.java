@@ -16,9 +16,11 @@ public class VideoProviderTest {
         assertEquals("com.example.camswap.provider", VideoProvider.AUTHORITY);
         assertEquals("video", VideoProvider.PATH_VIDEO);
         assertEquals("config", VideoProvider.PATH_CONFIG);
+        assertEquals("pcm", VideoProvider.PATH_PCM);
         assertEquals("next", VideoProvider.METHOD_NEXT);
         assertEquals("prev", VideoProvider.METHOD_PREV);
         assertEquals("random", VideoProvider.METHOD_RANDOM);
+        assertEquals("metrics", VideoProvider.METHOD_METRICS);
     }
     
     // Note: Deeper testing of VideoProvider requires Robolectric or instrumentation tests
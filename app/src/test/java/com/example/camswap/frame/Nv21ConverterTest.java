@@ -0,0 +1,246 @@
+package com.example.camswap.frame;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+public class Nv21ConverterTest {
+
+    /** 带渐变和噪声的合成 NV21 帧，固定种子 */
+    private static byte[] frame(int width, int height, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[width * height * 3 / 2];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                data[y * width + x] = (byte) (x * 3 + y * 2 + random.nextInt(8));
+            }
+        }
+        for (int i = width * height; i < data.length; i++) {
+            data[i] = (byte) (96 + random.nextInt(64));
+        }
+        return data;
+    }
+
+    /** 逐像素的参考旋转（顺时针） */
+    private static byte[] referenceRotate(byte[] src, int w, int h, int rotation) {
+        byte[] dst = new byte[src.length];
+        boolean swap = rotation == 90 || rotation == 270;
+        int dw = swap ? h : w;
+        int dh = swap ? w : h;
+        for (int y = 0; y < dh; y++) {
+            for (int x = 0; x < dw; x++) {
+                dst[y * dw + x] = src[sourceIndex(x, y, w, h, rotation, w)];
+            }
+        }
+        int cw = w / 2;
+        int ch = h / 2;
+        int cdw = dw / 2;
+        for (int y = 0; y < dh / 2; y++) {
+            for (int x = 0; x < cdw; x++) {
+                int s = w * h + 2 * sourceIndex(x, y, cw, ch, rotation, cw);
+                int d = dw * dh + y * dw + 2 * x;
+                dst[d] = src[s];
+                dst[d + 1] = src[s + 1];
+            }
+        }
+        return dst;
+    }
+
+    private static int sourceIndex(int x, int y, int w, int h, int rotation, int stride) {
+        switch (rotation) {
+            case 90:
+                return (h - 1 - x) * stride + y;
+            case 180:
+                return (h - 1 - y) * stride + (w - 1 - x);
+            case 270:
+                return x * stride + (w - 1 - y);
+            default:
+                return y * stride + x;
+        }
+    }
+
+    private static byte[] toNv12(byte[] nv21, int w, int h) {
+        byte[] out = nv21.clone();
+        for (int i = w * h; i < out.length; i += 2) {
+            out[i] = nv21[i + 1];
+            out[i + 1] = nv21[i];
+        }
+        return out;
+    }
+
+    private static byte[] toI420(byte[] nv21, int w, int h) {
+        byte[] out = new byte[nv21.length];
+        int frameSize = w * h;
+        int q = frameSize / 4;
+        System.arraycopy(nv21, 0, out, 0, frameSize);
+        for (int i = 0; i < q; i++) {
+            out[frameSize + i] = nv21[frameSize + 2 * i + 1];
+            out[frameSize + q + i] = nv21[frameSize + 2 * i];
+        }
+        return out;
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    @Test
+    public void testRotate90Golden() {
+        // 4x2：Y 为 0..7，两个色度块 (V,U) = (100,200) / (101,201)
+        byte[] src = { 0, 1, 2, 3, 4, 5, 6, 7, 100, (byte) 200, 101, (byte) 201 };
+        byte[] dst = new byte[src.length];
+        new Nv21Converter().convert(src, 4, 2, 90, dst, 2, 4);
+        byte[] expected = { 4, 0, 5, 1, 6, 2, 7, 3, 100, (byte) 200, 101, (byte) 201 };
+        assertArrayEquals(expected, dst);
+    }
+
+    @Test
+    public void testRotationsMatchReference() {
+        int w = 64;
+        int h = 48;
+        byte[] src = frame(w, h, 1);
+        Nv21Converter converter = new Nv21Converter();
+        for (int rotation : new int[] { 0, 90, 180, 270 }) {
+            boolean swap = rotation == 90 || rotation == 270;
+            byte[] dst = new byte[src.length];
+            converter.convert(src, w, h, rotation, dst, swap ? h : w, swap ? w : h);
+            assertArrayEquals("rotation " + rotation, referenceRotate(src, w, h, rotation), dst);
+        }
+    }
+
+    @Test
+    public void testFormatsProduceSameOutput() {
+        int w = 64;
+        int h = 48;
+        byte[] nv21 = frame(w, h, 2);
+        byte[] nv12 = toNv12(nv21, w, h);
+        byte[] i420 = toI420(nv21, w, h);
+        Nv21Converter converter = new Nv21Converter();
+        int[][] cases = { { 0, w, h }, { 90, h, w }, { 0, 40, 30 }, { 270, 36, 20 } };
+        for (int[] c : cases) {
+            int length = c[1] * c[2] * 3 / 2;
+            byte[] expected = new byte[length];
+            converter.convert(FrameFormat.NV21, nv21, w, h, c[0], expected, c[1], c[2]);
+            byte[] fromNv12 = new byte[length];
+            converter.convert(FrameFormat.NV12, nv12, w, h, c[0], fromNv12, c[1], c[2]);
+            byte[] fromI420 = new byte[length];
+            converter.convert(FrameFormat.I420, i420, w, h, c[0], fromI420, c[1], c[2]);
+            assertArrayEquals("NV12 " + c[0], expected, fromNv12);
+            assertArrayEquals("I420 " + c[0], expected, fromI420);
+        }
+    }
+
+    @Test
+    public void testScaleGolden() {
+        // 以当前实现的输出为基准，内核改动后输出变化需要确认并更新这些值
+        int w = 160;
+        int h = 120;
+        byte[] src = frame(w, h, 3);
+        Nv21Converter converter = new Nv21Converter();
+
+        byte[] bilinear = new byte[96 * 54 * 3 / 2];
+        converter.setFilter(Nv21Scaler.FILTER_BILINEAR);
+        converter.convert(src, w, h, 0, bilinear, 96, 54);
+        assertEquals(GOLDEN_BILINEAR, crc(bilinear));
+
+        byte[] area = new byte[40 * 72 * 3 / 2];
+        converter.setFilter(Nv21Scaler.FILTER_AREA);
+        converter.convert(src, w, h, 90, area, 40, 72);
+        assertEquals(GOLDEN_AREA_ROT90, crc(area));
+    }
+
+    private static final long GOLDEN_BILINEAR = 0xda681abcL;
+    private static final long GOLDEN_AREA_ROT90 = 0x51cdecc4L;
+
+    @Test
+    public void testConstantFrameStaysConstant() {
+        int w = 64;
+        int h = 48;
+        byte[] src = new byte[w * h * 3 / 2];
+        java.util.Arrays.fill(src, 0, w * h, (byte) 77);
+        java.util.Arrays.fill(src, w * h, src.length, (byte) 140);
+        Nv21Converter converter = new Nv21Converter();
+        for (int filter : new int[] { Nv21Scaler.FILTER_BILINEAR, Nv21Scaler.FILTER_AREA }) {
+            converter.setFilter(filter);
+            byte[] dst = new byte[30 * 20 * 3 / 2];
+            converter.convert(src, w, h, 90, dst, 30, 20);
+            for (int i = 0; i < dst.length; i++) {
+                assertEquals("filter " + filter + " @" + i, i < 600 ? 77 : 140, dst[i] & 0xFF);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        int w = 320;
+        int h = 240;
+        byte[] src = frame(w, h, 4);
+        Nv21Converter serial = new Nv21Converter();
+        Nv21Converter parallel = new Nv21Converter();
+        parallel.setParallelism(3);
+        try {
+            int[][] cases = { { 0, w, h }, { 90, h, w }, { 180, 200, 112 }, { 270, 96, 160 } };
+            for (int[] c : cases) {
+                int length = c[1] * c[2] * 3 / 2;
+                byte[] a = new byte[length];
+                byte[] b = new byte[length];
+                serial.convert(src, w, h, c[0], a, c[1], c[2]);
+                parallel.convert(src, w, h, c[0], b, c[1], c[2]);
+                assertArrayEquals("rotation " + c[0], a, b);
+            }
+        } finally {
+            parallel.release();
+        }
+    }
+
+    @Test
+    public void testPlanMatchesExplicitGeometry() {
+        int w = 160;
+        int h = 90;
+        byte[] src = frame(w, h, 5);
+        ConversionPlan plan = ConversionPlan.create(w, h, 90, 0, 120, 160);
+        assertEquals(90, plan.rotation);
+        assertEquals(120, plan.outWidth);
+        assertEquals(160, plan.outHeight);
+
+        Nv21Converter converter = new Nv21Converter();
+        byte[] expected = new byte[plan.frameLength];
+        converter.convert(src, w, h, 90, expected, 120, 160);
+        byte[] actual = new byte[plan.frameLength];
+        converter.convert(new YuvView().setNv21(src, w, h), plan, actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testDirectOutputMatchesHeap() {
+        int w = 160;
+        int h = 90;
+        byte[] src = frame(w, h, 6);
+        ByteBuffer i420 = ByteBuffer.allocateDirect(src.length);
+        i420.put(toI420(src, w, h)).flip();
+        YuvView view = FrameFormat.I420.view(i420, w, h, new YuvView());
+
+        Nv21Converter converter = new Nv21Converter();
+        // 无变换（逐行批量拷贝）与旋转缩放（堆帧中转）两条路径
+        ConversionPlan[] plans = { ConversionPlan.create(w, h, 0, 0, w, h),
+                ConversionPlan.create(w, h, 90, 0, 60, 80) };
+        for (ConversionPlan plan : plans) {
+            byte[] expected = new byte[plan.frameLength];
+            converter.convert(view, plan, expected);
+            ByteBuffer direct = DirectBufferPool.acquire(plan.frameLength);
+            converter.convert(view, plan, direct);
+            assertEquals(0, direct.position());
+            byte[] actual = new byte[plan.frameLength];
+            direct.get(actual);
+            assertArrayEquals(expected, actual);
+            DirectBufferPool.release(direct);
+        }
+    }
+}
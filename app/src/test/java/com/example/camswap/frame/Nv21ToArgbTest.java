@@ -0,0 +1,53 @@
+package com.example.camswap.frame;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class Nv21ToArgbTest {
+
+    @Test
+    public void testBlackAndWhite() {
+        // 2x2 一个色度块：Y 16 / 235，色度居中
+        byte[] nv21 = { 16, 16, (byte) 235, (byte) 235, (byte) 128, (byte) 128 };
+        int[] argb = new int[4];
+        Nv21ToArgb.convert(nv21, 2, 2, argb);
+        assertEquals(0xFF000000, argb[0]);
+        assertEquals(0xFF000000, argb[1]);
+        assertEquals(0xFFFFFFFF, argb[2]);
+        assertEquals(0xFFFFFFFF, argb[3]);
+    }
+
+    @Test
+    public void testMatchesFloatBt601() {
+        int w = 32;
+        int h = 16;
+        Random random = new Random(7);
+        byte[] nv21 = new byte[w * h * 3 / 2];
+        random.nextBytes(nv21);
+        int[] argb = new int[w * h];
+        Nv21ToArgb.convert(nv21, w, h, argb);
+
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int c = w * h + (y / 2) * w + (x & ~1);
+                double yy = 1.164 * ((nv21[y * w + x] & 0xFF) - 16);
+                double v = (nv21[c] & 0xFF) - 128;
+                double u = (nv21[c + 1] & 0xFF) - 128;
+                int pixel = argb[y * w + x];
+                assertEquals(0xFF, pixel >>> 24);
+                assertClose(yy + 1.596 * v, (pixel >> 16) & 0xFF);
+                assertClose(yy - 0.813 * v - 0.391 * u, (pixel >> 8) & 0xFF);
+                assertClose(yy + 2.018 * u, pixel & 0xFF);
+            }
+        }
+    }
+
+    private static void assertClose(double expected, int actual) {
+        int e = (int) Math.round(Math.max(0, Math.min(255, expected)));
+        assertTrue("expected " + e + " got " + actual, Math.abs(e - actual) <= 1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.camswap.frame;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RgbToYuvTest {
+
+    @Test
+    public void testArgbPrimaries() {
+        // 2x2：白、红 / 绿、蓝，色度取左上角（白）
+        int[] pixels = { 0xFFFFFFFF, 0xFFFF0000, 0xFF00FF00, 0xFF0000FF };
+        byte[] yuv = new byte[6];
+        RgbToYuv.argbToNv12(pixels, 2, 2, yuv);
+        assertArrayEquals(new byte[] { (byte) 235, 82, (byte) 144, 41, (byte) 128, (byte) 128 }, yuv);
+    }
+
+    @Test
+    public void testArgbChromaOfRed() {
+        int[] pixels = { 0xFFFF0000, 0xFFFF0000, 0xFFFF0000, 0xFFFF0000 };
+        byte[] yuv = new byte[6];
+        RgbToYuv.argbToNv12(pixels, 2, 2, yuv);
+        assertEquals(82, yuv[0] & 0xFF);
+        assertEquals(90, yuv[4] & 0xFF);
+        assertEquals(240, yuv[5] & 0xFF);
+    }
+
+    @Test
+    public void testAbgrSwapsRedAndBlue() {
+        // 低字节为 R：0xFF0000FF 在 ABGR 下是红色；色度取块内最后写入的像素
+        int[] pixels = { 0xFF0000FF, 0xFF0000FF, 0xFF0000FF, 0xFF0000FF };
+        byte[] yuv = new byte[6];
+        RgbToYuv.abgrToNv12(pixels, 2, 2, yuv);
+        assertArrayEquals(new byte[] { 82, 82, 82, 82, 90, (byte) 240 }, yuv);
+    }
+
+    @Test
+    public void testAbgrLumaFloor() {
+        int[] pixels = { 0xFF000000, 0xFF000000, 0xFF000000, 0xFF000000 };
+        byte[] yuv = new byte[6];
+        RgbToYuv.abgrToNv12(pixels, 2, 2, yuv);
+        assertEquals(16, yuv[0] & 0xFF);
+        assertEquals(128, yuv[4] & 0xFF);
+        assertEquals(128, yuv[5] & 0xFF);
+    }
+}
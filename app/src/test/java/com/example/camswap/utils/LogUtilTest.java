@@ -0,0 +1,36 @@
+package com.example.camswap.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LogUtilTest {
+
+    @Test
+    public void testTagOf() {
+        assertEquals("decoder", LogUtil.tagOf("【CS】【decoder】解码器错误"));
+        assertEquals("GL", LogUtil.tagOf("【GL】init"));
+        assertEquals("【CS】Camera1 Phot", LogUtil.tagOf("【CS】Camera1 Photo Fake: 从 NV21 帧回调数据生成 JPEG"));
+        assertEquals("short", LogUtil.tagOf("short"));
+    }
+
+    @Test
+    public void testLimiterBurstThenRefill() {
+        long t = 0;
+        LogUtil.TagLimiter limiter = new LogUtil.TagLimiter(3, 10, t);
+        assertEquals(0, limiter.tryAcquire(t));
+        assertEquals(0, limiter.tryAcquire(t));
+        assertEquals(0, limiter.tryAcquire(t));
+        assertEquals(-1, limiter.tryAcquire(t));
+        assertEquals(-1, limiter.tryAcquire(t + 50_000_000L));
+        // 100ms 补充一个令牌，并报告此前抑制的 2 条
+        assertEquals(2, limiter.tryAcquire(t + 100_000_000L));
+        assertEquals(-1, limiter.tryAcquire(t + 150_000_000L));
+        // 长时间空闲后最多恢复到突发上限
+        t += 10_000_000_000L;
+        assertEquals(1, limiter.tryAcquire(t));
+        assertEquals(0, limiter.tryAcquire(t));
+        assertEquals(0, limiter.tryAcquire(t));
+        assertEquals(-1, limiter.tryAcquire(t));
+    }
+}
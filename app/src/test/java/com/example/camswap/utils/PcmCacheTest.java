@@ -0,0 +1,86 @@
+package com.example.camswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+public class PcmCacheTest {
+
+    @Test
+    public void testHeaderRoundTrip() {
+        PcmCache.Header h = new PcmCache.Header(44100, 2, 123456789L, 4_000_000L, 1_700_000_000_000L);
+        ByteBuffer buf = h.encode();
+        assertEquals(PcmCache.HEADER_BYTES, buf.remaining());
+
+        PcmCache.Header d = PcmCache.Header.decode(buf);
+        assertEquals(44100, d.sampleRate);
+        assertEquals(2, d.channels);
+        assertEquals(123456789L, d.frames);
+        assertEquals(4_000_000L, d.sourceSize);
+        assertEquals(1_700_000_000_000L, d.sourceMtime);
+    }
+
+    @Test
+    public void testRejectsForeignOrEmptyHeader() {
+        ByteBuffer buf = new PcmCache.Header(44100, 2, 10, 0, 0).encode();
+        buf.putInt(0, 0x12345678);
+        assertNull(PcmCache.Header.decode(buf));
+        assertNull(PcmCache.Header.decode(new PcmCache.Header(44100, 2, 0, 0, 0).encode()));
+    }
+
+    @Test
+    public void testKeyChangesWithSource() throws Exception {
+        File source = File.createTempFile("pcm", ".mp3");
+        try {
+            String before = PcmCache.keyOf(source);
+            assertEquals(before, PcmCache.keyOf(source));
+            java.nio.file.Files.write(source.toPath(), new byte[] { 1, 2, 3 });
+            assertNotEquals(before, PcmCache.keyOf(source));
+        } finally {
+            source.delete();
+        }
+    }
+
+    @Test
+    public void testExistingOnlyReturnsValidCache() throws Exception {
+        File root = java.nio.file.Files.createTempDirectory("pcmroot").toFile();
+        File source = File.createTempFile("pcm", ".mp3");
+        try {
+            java.nio.file.Files.write(source.toPath(), new byte[] { 1, 2, 3 });
+            assertNull(PcmCache.existing(root, source));
+
+            File dir = new File(root, "pcm");
+            assertTrue(dir.mkdirs());
+            File cache = new File(dir, PcmCache.keyOf(source) + ".pcm");
+            try (RandomAccessFile raf = new RandomAccessFile(cache, "rw")) {
+                raf.getChannel().write(new PcmCache.Header(8000, 1, 4, source.length(),
+                        source.lastModified()).encode());
+                raf.write(new byte[8]);
+            }
+            assertEquals(cache, PcmCache.existing(root, source));
+
+            // 数据不完整（生成中断）时不提供
+            try (RandomAccessFile raf = new RandomAccessFile(cache, "rw")) {
+                raf.setLength(cache.length() - 2);
+            }
+            assertNull(PcmCache.existing(root, source));
+        } finally {
+            source.delete();
+            File[] files = new File(root, "pcm").listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            new File(root, "pcm").delete();
+            root.delete();
+        }
+    }
+}
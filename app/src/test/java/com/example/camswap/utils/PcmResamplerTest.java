@@ -0,0 +1,55 @@
+package com.example.camswap.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+public class PcmResamplerTest {
+
+    @Test
+    public void testOffsetWriteMatchesFullFrames() {
+        short[] pcm = new short[2 * 441];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (i * 37);
+        }
+        double ratio = 44100.0 / 48000;
+        short[] expected = new short[2 * 100];
+        PcmResampler.resample(pcm, 2, 3.5, ratio, expected, 100, 2);
+
+        // 写到偏移处，且样本数不是声道数整数倍：只写请求范围，其余保持不动
+        short[] dst = new short[5 + 199 + 5];
+        int frames = PcmResampler.resample(pcm, 2, 3.5, ratio, dst, 5, 199, 2);
+        assertEquals(100, frames);
+        for (int i = 0; i < 199; i++) {
+            assertEquals(expected[i], dst[5 + i]);
+        }
+        assertEquals(0, dst[4]);
+        assertEquals(0, dst[5 + 199]);
+    }
+
+    @Test
+    public void testMappedSourceMatchesArray() {
+        short[] pcm = new short[2 * 300];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (i * 53);
+        }
+        // 与映射的缓存文件一样：小端直接内存上的 ShortBuffer 视图
+        ShortBuffer mapped = ByteBuffer.allocateDirect(pcm.length * 2).order(ByteOrder.LITTLE_ENDIAN)
+                .asShortBuffer().put(pcm);
+        mapped.flip();
+
+        double ratio = 48000.0 / 44100;
+        short[] expected = new short[3 * 400];
+        short[] actual = new short[3 * 400];
+        // 跨过末尾回绕，目标 3 声道
+        PcmResampler.resample(pcm, 2, 10.25, ratio, expected, 0, expected.length, 3);
+        PcmResampler.resample(mapped, 2, 10.25, ratio, actual, 0, actual.length, 3);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i]);
+        }
+    }
+}
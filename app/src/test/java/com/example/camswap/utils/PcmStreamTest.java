@@ -0,0 +1,105 @@
+package com.example.camswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ShortBuffer;
+
+public class PcmStreamTest {
+
+    // 1000 Hz 单声道：环容量 4000 帧
+    private static PcmStream stream() {
+        return new PcmStream("long.mp3", 1000, 1, 100_000);
+    }
+
+    private static void append(PcmStream stream, int from, int frames) {
+        short[] pcm = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            pcm[i] = (short) (from + i);
+        }
+        stream.append(ShortBuffer.wrap(pcm));
+    }
+
+    @Test
+    public void testSilenceUntilDecodedThenReadsInOrder() {
+        PcmStream stream = stream();
+        PlaybackCursor cursor = new PlaybackCursor();
+        short[] dst = new short[100];
+
+        dst[0] = 1;
+        cursor.fill(stream, dst, 0, 100, 1000, 1);
+        assertEquals(0, dst[0]);
+
+        // 未就绪时不推进，数据到了从头开始
+        append(stream, 0, 2000);
+        cursor.fill(stream, dst, 0, 100, 1000, 1);
+        assertEquals(0, dst[0]);
+        assertEquals(99, dst[99]);
+        cursor.fill(stream, dst, 0, 100, 1000, 1);
+        assertEquals(100, dst[0]);
+    }
+
+    @Test
+    public void testLaggingReaderJumpsToWindow() {
+        PcmStream stream = stream();
+        append(stream, 0, 3000);
+        append(stream, 3000, 3000);
+        PlaybackCursor cursor = new PlaybackCursor();
+        short[] dst = new short[10];
+
+        // 已写 6000 帧，最早可读 6000 - 4000 + 1000
+        cursor.fill(stream, dst, 0, 10, 1000, 1);
+        assertEquals(3000, dst[0]);
+        cursor.fill(stream, dst, 0, 10, 1000, 1);
+        assertEquals(3010, dst[0]);
+    }
+
+    @Test
+    public void testLocateRequestsSeekWhenFarAway() {
+        PcmStream stream = stream();
+        append(stream, 0, 3000);
+        assertEquals(2500, stream.locate(2500));
+        assertEquals(-1, stream.locate(50_000));
+    }
+
+    @Test
+    public void testDecoderSleepsUntilReaderAdvances() throws Exception {
+        PcmStream stream = stream();
+        append(stream, 0, 2500);
+        Thread decoder = new Thread(() -> {
+            try {
+                stream.awaitReaders();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        decoder.start();
+        // 领先读者超过半个环：一直等待，不轮询返回
+        decoder.join(200);
+        assertTrue(decoder.isAlive());
+
+        short[] dst = new short[1000];
+        new PlaybackCursor().fill(stream, dst, 0, 1000, 1000, 1);
+        decoder.join(1000);
+        assertFalse(decoder.isAlive());
+    }
+
+    @Test
+    public void testCloseWakesWaitingDecoder() throws Exception {
+        PcmStream stream = stream();
+        append(stream, 0, 2500);
+        Thread decoder = new Thread(() -> {
+            try {
+                stream.awaitReaders();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        decoder.start();
+        decoder.join(100);
+        stream.close();
+        decoder.join(1000);
+        assertFalse(decoder.isAlive());
+    }
+}
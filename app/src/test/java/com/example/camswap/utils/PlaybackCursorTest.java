@@ -0,0 +1,49 @@
+package com.example.camswap.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PlaybackCursorTest {
+
+    private static PcmSnapshot ramp(String path, int frames, int base) {
+        short[] pcm = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            pcm[i] = (short) (base + i);
+        }
+        return new PcmSnapshot(path, pcm, 8000, 1);
+    }
+
+    @Test
+    public void testLoopsAndRestartsOnNewSnapshot() {
+        PlaybackCursor cursor = new PlaybackCursor();
+        PcmSnapshot a = ramp("a", 10, 0);
+        short[] dst = new short[4];
+
+        cursor.fill(a, dst, 0, 4, 8000, 1);
+        cursor.fill(a, dst, 0, 4, 8000, 1);
+        cursor.fill(a, dst, 0, 4, 8000, 1);
+        // 位置 8 → 读 8, 9 后回绕到开头
+        assertEquals(8, dst[0]);
+        cursor.fill(a, dst, 0, 4, 8000, 1);
+        assertEquals(2, dst[0]);
+
+        // 换成新数据后从头开始
+        PcmSnapshot b = ramp("b", 10, 100);
+        cursor.fill(b, dst, 0, 4, 8000, 1);
+        assertEquals(100, dst[0]);
+    }
+
+    @Test
+    public void testCursorsAreIndependent() {
+        PcmSnapshot a = ramp("a", 100, 0);
+        PlaybackCursor first = new PlaybackCursor();
+        PlaybackCursor second = new PlaybackCursor();
+        short[] dst = new short[10];
+
+        first.fill(a, dst, 0, 10, 8000, 1);
+        first.fill(a, dst, 0, 10, 8000, 1);
+        second.fill(a, dst, 0, 10, 8000, 1);
+        assertEquals(0, dst[0]);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.camswap.bench;
+
+import java.util.Random;
+
+/**
+ * 合成输入数据。固定随机种子，保证每次运行输入相同。
+ */
+final class BenchData {
+    private BenchData() {
+    }
+
+    /** 带平滑渐变和噪声的 NV21 帧，避免全随机数据让缩放结果失去代表性 */
+    static byte[] nv21(int width, int height, Random random) {
+        byte[] data = new byte[width * height * 3 / 2];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                data[y * width + x] = (byte) (((x + y) >> 2) + random.nextInt(16));
+            }
+        }
+        for (int i = width * height; i < data.length; i++) {
+            data[i] = (byte) (128 + random.nextInt(64) - 32);
+        }
+        return data;
+    }
+
+    static int[] argb(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+
+    static short[] pcm(int frames, int channels, Random random) {
+        short[] pcm = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            short s = (short) (Math.sin(i * 2 * Math.PI * 440 / 44100) * 12000 + random.nextInt(512) - 256);
+            for (int ch = 0; ch < channels; ch++) {
+                pcm[i * channels + ch] = s;
+            }
+        }
+        return pcm;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.camswap.bench;
+
+import com.example.camswap.frame.Nv21Converter;
+import com.example.camswap.frame.Nv21ToArgb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NV21 旋转 / 裁剪缩放 / 转 ARGB 内核，合成帧，覆盖 480p 到 4K。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Nv21Benchmark {
+    @Param({ "640x480", "1280x720", "1920x1080", "3840x2160" })
+    public String size;
+
+    /** 转换并行度（含调用线程），1 为单线程 */
+    @Param({ "1" })
+    public int threads;
+
+    private int width;
+    private int height;
+    private byte[] src;
+    private byte[] rotated;
+    private byte[] half;
+    private byte[] preview;
+    private int[] argb;
+    private Nv21Converter converter;
+
+    @Setup
+    public void setUp() {
+        String[] parts = size.split("x");
+        width = Integer.parseInt(parts[0]);
+        height = Integer.parseInt(parts[1]);
+        src = BenchData.nv21(width, height, new Random(42));
+        rotated = new byte[width * height * 3 / 2];
+        half = new byte[(width / 2) * (height / 2) * 3 / 2];
+        preview = new byte[1280 * 720 * 3 / 2];
+        argb = new int[width * height];
+        converter = new Nv21Converter();
+        converter.setParallelism(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        converter.release();
+    }
+
+    @Benchmark
+    public byte[] rotate90() {
+        converter.convert(src, width, height, 90, rotated, height, width);
+        return rotated;
+    }
+
+    @Benchmark
+    public byte[] scaleHalf() {
+        converter.convert(src, width, height, 0, half, width / 2, height / 2);
+        return half;
+    }
+
+    /** 竖屏视频旋转后居中裁剪缩放到 720p 预览，解码循环中最常见的组合 */
+    @Benchmark
+    public byte[] rotateCropScaleTo720p() {
+        converter.convert(src, width, height, 90, preview, 1280, 720);
+        return preview;
+    }
+
+    @Benchmark
+    public int[] toArgb() {
+        Nv21ToArgb.convert(src, width, height, argb);
+        return argb;
+    }
+}
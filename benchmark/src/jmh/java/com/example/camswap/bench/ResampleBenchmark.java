@@ -0,0 +1,56 @@
+package com.example.camswap.bench;
+
+import com.example.camswap.utils.PcmResampler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 麦克风替换的 PCM 重采样：10 秒 44.1kHz 立体声源，每次填充一个录音缓冲区。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResampleBenchmark {
+    private static final int SRC_RATE = 44100;
+    private static final int SRC_CHANNELS = 2;
+
+    @Param({ "16000", "48000" })
+    public int dstRate;
+
+    @Param({ "1", "2" })
+    public int dstChannels;
+
+    /** 每次读取的目标帧数（AudioRecord 常见缓冲区大小） */
+    @Param({ "1024" })
+    public int frames;
+
+    private short[] pcm;
+    private short[] dst;
+    private double ratio;
+    private long position;
+
+    @Setup
+    public void setUp() {
+        pcm = BenchData.pcm(SRC_RATE * 10, SRC_CHANNELS, new Random(42));
+        dst = new short[frames * dstChannels];
+        ratio = (double) SRC_RATE / dstRate;
+        position = 0;
+    }
+
+    @Benchmark
+    public short[] fillBuffer() {
+        PcmResampler.resample(pcm, SRC_CHANNELS, position * ratio, ratio, dst, frames, dstChannels);
+        position += frames;
+        return dst;
+    }
+}
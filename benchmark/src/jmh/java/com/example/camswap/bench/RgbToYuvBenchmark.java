@@ -0,0 +1,52 @@
+package com.example.camswap.bench;
+
+import com.example.camswap.frame.RgbToYuv;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片替换路径的 RGB -> NV12 转换（ImageUtils.rgb2YCbCr420 与 ImageToVideoConverter 编码输入）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RgbToYuvBenchmark {
+    @Param({ "640x480", "1280x720", "1920x1080", "3840x2160" })
+    public String size;
+
+    private int width;
+    private int height;
+    private int[] pixels;
+    private byte[] yuv;
+
+    @Setup
+    public void setUp() {
+        String[] parts = size.split("x");
+        width = Integer.parseInt(parts[0]);
+        height = Integer.parseInt(parts[1]);
+        pixels = BenchData.argb(width, height, new Random(42));
+        yuv = new byte[width * height * 3 / 2];
+    }
+
+    @Benchmark
+    public byte[] abgrToNv12() {
+        RgbToYuv.abgrToNv12(pixels, width, height, yuv);
+        return yuv;
+    }
+
+    @Benchmark
+    public byte[] argbToNv12() {
+        RgbToYuv.argbToNv12(pixels, width, height, yuv);
+        return yuv;
+    }
+}